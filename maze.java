@@ -2,12 +2,56 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.lang.management.ManagementFactory;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
 
 import tester.*;
 import javalib.impworld.*;
 import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 import javalib.worldimages.*;
 
 class Vertex {
@@ -43,14 +87,12 @@ class Vertex {
 
   //draws all the visited nodes
   public WorldImage drawSeenVertex() {
-    return new RectangleImage(Graph.CELL_SIZE, Graph.CELL_SIZE, OutlineMode.SOLID, 
-        new Color(51, 153, 255));
+    return Sprites.get(Sprites.SEEN, Graph.CELL_SIZE);
   }
 
   //draws all the nodes on the Path
   public WorldImage drawPathVertex() {
-    return new RectangleImage(Graph.CELL_SIZE, Graph.CELL_SIZE, OutlineMode.SOLID, 
-        new Color(0, 0, 204));
+    return Sprites.get(Sprites.PATH, Graph.CELL_SIZE);
   }
 }
 
@@ -59,12 +101,14 @@ class Edge implements Comparable<Edge> {
   Vertex to;
   int weight;
   int reachTime;
+  int id;
 
   Edge(Vertex from, Vertex to, int weight) {
     this.from = from;
     this.to = to;
     this.weight = weight;
     this.reachTime = 0;
+    this.id = -1;
   }
 
   //checks if this Edge is the same as that one
@@ -77,15 +121,25 @@ class Edge implements Comparable<Edge> {
         || (this.to.equals(that.from) && this.from.equals(that.to));
   }       
 
+  // creates a hashcode for this edge that does not depend on its direction
+  public int hashCode() {
+    return 31 * Math.min(this.from.name, this.to.name) + Math.max(this.from.name, this.to.name);
+  }
+
+  //packs the names of the two ends of this edge, smaller first, into one key
+  public long key() {
+    long lo = Math.min(this.from.name, this.to.name);
+    long hi = Math.max(this.from.name, this.to.name);
+    return (lo << 32) | (hi & 0xFFFFFFFFL);
+  }
+
   //draws all the edges in this graph
   public WorldImage drawEdge() {
     if (this.from.y == this.to.y) {
-      //return new RectangleImage(Graph.CELL_SIZE - 1, Graph.CELL_SIZE -1, 
-      //   OutlineMode.SOLID, Color.GRAY);
-      return new LineImage(new Posn(0 , Graph.CELL_SIZE), Color.white);
+      return Sprites.get(Sprites.SIDE_WALL, Graph.CELL_SIZE);
     }
     else {
-      return new LineImage(new Posn(Graph.CELL_SIZE, 0), Color.white);
+      return Sprites.get(Sprites.FLOOR_WALL, Graph.CELL_SIZE);
     }
   }
 
@@ -126,408 +180,3447 @@ class Player {
 
   //draws the player
   public WorldImage drawPlayer() {
-    return new CircleImage(Graph.CELL_SIZE / 4, OutlineMode.SOLID, Color.pink);
+    return Sprites.get(Sprites.PLAYER, Graph.CELL_SIZE);
   }
 
 }
 
 
-class Graph extends World {
-  ArrayList<ArrayList<Vertex>> board;
-  ArrayList<Edge> allEdges;
-  ArrayList<Edge> allEdges2;
-  List<Edge> mst;
-  List<Edge> mstCopy;
-  ArrayList<Vertex> visited;
-  ArrayList<Vertex> searchPath;
+//the images for the vertex, edge and player sprites, made once per cell size and
+//shared by every caller: a WorldImage is never changed once it is made
+class Sprites {
+  static final int SEEN = 0;
+  static final int PATH = 1;
+  static final int SIDE_WALL = 2;
+  static final int FLOOR_WALL = 3;
+  static final int PLAYER = 4;
+  static HashMap<Integer, WorldImage[]> bySize = new HashMap<Integer, WorldImage[]>();
 
-  Player player;
-  int width;
-  int height;
+  //gives the sprite of this kind for cells of the given size
+  static WorldImage get(int kind, int cellSize) {
+    WorldImage[] sprites = bySize.get(cellSize);
+    if (sprites == null) {
+      sprites = make(cellSize);
+      bySize.put(cellSize, sprites);
+    }
+    return sprites[kind];
+  }
 
-  int time;
-  int seconds;
-  int animationTime;
+  //makes every sprite for cells of the given size
+  static WorldImage[] make(int cellSize) {
+    WorldImage[] sprites = new WorldImage[5];
+    sprites[SEEN] = new RectangleImage(cellSize, cellSize, OutlineMode.SOLID, 
+        new Color(51, 153, 255));
+    sprites[PATH] = new RectangleImage(cellSize, cellSize, OutlineMode.SOLID, 
+        new Color(0, 0, 204));
+    sprites[SIDE_WALL] = new LineImage(new Posn(0 , cellSize), Color.white);
+    sprites[FLOOR_WALL] = new LineImage(new Posn(cellSize, 0), Color.white);
+    sprites[PLAYER] = new CircleImage(cellSize / 4, OutlineMode.SOLID, Color.pink);
+    return sprites;
+  }
+}
 
-  //Defines an int constant
-  static final int CELL_SIZE = 10;
 
+//represents the passages of a maze compactly: two bits per cell packed into a long[]
+//indexed by Vertex.name. Bit RIGHT is the opening to the cell on the right and bit DOWN
+//the opening to the cell below; openings up and left are read off the neighbouring cell
+class MazeGrid {
+  static final int RIGHT = 1;
+  static final int DOWN = 2;
 
-  //constructor
-  Graph(int width, int height) {
+  int width;
+  int height;
+  long[] passages;
+
+  MazeGrid(int width, int height) {
     this.width = width;
     this.height = height;
-    this.player = new Player(0, 0);
-    this.board = null;
-    this.fixConnections();
-    this.allEdges = this.sortEdges(this.getAllEdges());
-    this.allEdges2 = this.sortEdges(this.getAllEdges());
-    this.mst = this.kruskal();
-    this.mstCopy = this.kruskal();
-    this.removeMST();
-    this.removeEdges();
-    this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
-    this.visited = new ArrayList<Vertex>();
-    this.time = 0;
-    this.seconds = 0;
-    this.animationTime = 0;
+    this.passages = new long[(int) (((long) width * height + 31) / 32)];
   }
 
-  //secondary constructor for testing removeEdges
-  //diff parameter exists to differentiate between constructors
-  Graph(int width, int height, int diff) {
-    this.width = width;
-    this.height = height;
-    this.player = new Player(0, 0);
-    this.board = null;
-    this.fixConnections();
-    this.allEdges = this.sortEdges(this.getAllEdges());
-    this.mst = this.kruskal();
-    this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
-    this.visited = new ArrayList<Vertex>();
-    this.time = 0;
+  //gives the number of cells in this grid
+  public int cells() {
+    return this.width * this.height;
   }
 
+  //gives the cell (the Vertex.name) at the given position
+  public int cellAt(int x, int y) {
+    return y * this.width + x;
+  }
 
-  //draws the world scene
-  public WorldScene makeScene() {
-    WorldScene scene = new WorldScene((this.width) * CELL_SIZE, (this.height) * CELL_SIZE);
-    scene.placeImageXY(new RectangleImage((this.width) * CELL_SIZE, (this.height) * CELL_SIZE,
-        OutlineMode.SOLID, Color.GRAY), width * CELL_SIZE / 2, height * CELL_SIZE / 2);
+  //gives the RIGHT and DOWN bits of this cell
+  public int passagesOf(int cell) {
+    return (int) (this.passages[cell >>> 5] >>> ((cell & 31) << 1)) & 3;
+  }
 
-    //sets the search path to the optimal path if the player solves the maze
-    if (this.playerSolved()) {
-      this.drawPath();
-    }
-    //draws all the vertices that are seen by the algorithm
-    for (Vertex v : this.visited) {
-      if (v.reachTime <= time) {
-        scene.placeImageXY(v.drawSeenVertex(), v.x * CELL_SIZE + (CELL_SIZE / 2), 
-            v.y * CELL_SIZE + (CELL_SIZE / 2)); 
-      }
-    }
-    //draws the path that solves the maze
-    if (time >= this.board.get(this.height - 1).get(this.width - 1).reachTime 
-        || this.playerSolved()) {
-      for (Vertex v : this.searchPath) {
-        scene.placeImageXY(v.drawPathVertex(),v.x * CELL_SIZE + (CELL_SIZE / 2), 
-            v.y * CELL_SIZE + (CELL_SIZE / 2));
-      } 
-    }
-    for (Edge e : this.allEdges2) {
-      if (e.from.y == e.to.y) {
-        scene.placeImageXY(e.drawEdge(), e.from.x * CELL_SIZE + CELL_SIZE,
-            e.from.y * CELL_SIZE + CELL_SIZE / 2);
-      }
-      else {
-        scene.placeImageXY(e.drawEdge(), e.from.x * CELL_SIZE + CELL_SIZE / 2,
-            e.from.y * CELL_SIZE + CELL_SIZE);
-      }
-    }
-    scene.placeImageXY(this.player.drawPlayer(), 
-        player.x * CELL_SIZE + (CELL_SIZE / 2), player.y * CELL_SIZE + (CELL_SIZE / 2));
+  //checks if the passage in the given direction (RIGHT or DOWN) out of this cell is open
+  public boolean isOpen(int cell, int dir) {
+    return (this.passagesOf(cell) & dir) != 0;
+  }
 
-    //extra feature: keeps a timer starting at the time when the maze has been constructed.
-    if (this.mstCopy.size() == 0) {
-      scene.placeImageXY(new TextImage("Time: " + (this.seconds) + "." + (this.time % 60), 
-          15, Color.RED), 
-          (this.width - (this.width / 4)) * CELL_SIZE, (this.height / 6) * CELL_SIZE); 
-    }
-    return scene;
+  //EFFECT: opens the passage in the given direction (RIGHT or DOWN) out of this cell
+  public void open(int cell, int dir) {
+    this.passages[cell >>> 5] |= ((long) dir) << ((cell & 31) << 1);
   }
 
-  //on tick method
-  public void onTick() {
-    time += 1;
-    if ((time % 60) == 0 && (this.mstCopy.size() == 0)) {
-      seconds ++;
+  //EFFECT: opens the passage between two neighbouring cells
+  public void connect(int c1, int c2) {
+    int lo = Math.min(c1, c2);
+    int hi = Math.max(c1, c2);
+    if (hi - lo == this.width) {
+      this.open(lo, DOWN);
     }
-    //Bell : tears down the walls
-    if (this.mstCopy.size() > 0) {
-      Edge e = this.mstCopy.get(0);
-      this.allEdges2.remove(e);
-      this.mstCopy.remove(e);
+    else {
+      this.open(lo, RIGHT);
     }
   }
 
-  //draws optimal path when player solves the maze
-  public void drawPath() {
-    ArrayList<Vertex> temp = new ArrayList<Vertex>();
-    for (Vertex v : this.visited) {
-      temp.add(v);
-    }
-    this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
-    this.visited = new ArrayList<Vertex>();
-    this.findPathDFS(this.board.get(0).get(0), this.board.get(this.height - 1).get(this.width - 1));
-    this.visited = temp;
+  //can the player go up from this cell
+  public boolean canGoUp(int cell) {
+    return cell >= this.width && this.isOpen(cell - this.width, DOWN);
   }
 
-  //updates the world on every tick
-  public void onKeyEvent(String ke) {
-    this.updatePath(ke);
-    if (ke.equals("up")
-        && (this.player.y != 0) && mst.contains(new Edge(board.get(player.y).get(player.x), 
-            board.get(player.y - 1).get(player.x), 5))) {
-      player.movePlayer(ke);
-    }
-    else if (ke.equals("left") 
-        && (this.player.x != 0) && mst.contains(new Edge(board.get(player.y).get(player.x - 1), 
-            board.get(player.y).get(player.x), 5))) {
-      player.movePlayer(ke);
-    }
-    else if (ke.equals("right") && 
-        (this.player.x != this.width - 1) && 
-        mst.contains(new Edge(board.get(player.y).get(player.x + 1), 
-            board.get(player.y).get(player.x), 5))) {
-      player.movePlayer(ke);
-    }
-    else if (ke.equals("down") &&
-        (this.player.y != this.height - 1) && 
-        mst.contains(new Edge(board.get(player.y + 1).get(player.x), 
-            board.get(player.y).get(player.x), 5))) {
-      player.movePlayer(ke);
-    }
-    else if (ke.equals("b")) {
-      seconds = 0;
-      this.time = 0;
-      this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
-      this.visited = new ArrayList<Vertex>();
-      this.findPathBFS(this.board.get(0).get(0), 
-          this.board.get(this.height - 1).get(this.width - 1));
-    }
-    else if (ke.equals("d")) {
-      seconds = 0;
-      this.time = 0;
-      this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
-      this.visited = new ArrayList<Vertex>();
-      this.findPathDFS(this.board.get(0).get(0), 
-          this.board.get(this.height - 1).get(this.width - 1));
-    }
-    else if (ke.equals("r")) {
-      seconds = 0;
-      Graph g = new Graph(this.width, this.height);
-      this.resetFields(g);
-    }
+  //can the player go left from this cell
+  public boolean canGoLeft(int cell) {
+    return cell % this.width != 0 && this.isOpen(cell - 1, RIGHT);
   }
 
-  //resets the fields on a key event
-  public void resetFields(Graph g) {
-    this.width = g.width;
-    this.height = g.height;
-    this.player = g.player;
-    this.board = g.board;
-    this.fixConnections();
-    this.allEdges = this.sortEdges(this.getAllEdges());
-    this.allEdges2 = this.sortEdges(this.getAllEdges());
-    this.mst = this.kruskal();
-    this.mstCopy = this.kruskal();
-    this.removeMST();
-    this.removeEdges();
-    this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
-    this.visited = new ArrayList<Vertex>();
-    this.time = 0;
+  //can the player go right from this cell
+  public boolean canGoRight(int cell) {
+    return this.isOpen(cell, RIGHT);
   }
 
-  //updates the path that the player has visited
-  public void updatePath(String ke) {
-    if (ke.equals("up") && (this.player.y != 0) &&
-        mst.contains(new Edge(board.get(player.y).get(player.x), 
-            board.get(player.y - 1).get(player.x), 5))) {
-      visited.add(board.get(player.y - 1).get(player.x));
-    }
-    else if (ke.equals("left") && (this.player.x != 0) &&
-        mst.contains(new Edge(board.get(player.y).get(player.x - 1), 
-            board.get(player.y).get(player.x), 5))) {
-      visited.add(board.get(player.y).get(player.x - 1));
+  //can the player go down from this cell
+  public boolean canGoDown(int cell) {
+    return this.isOpen(cell, DOWN);
+  }
+
+  //gives the number of edges between neighbouring cells
+  public int edges() {
+    return edgeCount(this.width, this.height);
+  }
+
+  //gives the number of edges between neighbouring cells of a width x height grid
+  static int edgeCount(int width, int height) {
+    return (width - 1) * height + width * (height - 1);
+  }
+
+  //gives the id of the edge leaving this cell in the given direction (RIGHT or DOWN)
+  //ids follow the order fixConnections registers edges in: row by row, right then down
+  public int edgeId(int cell, int dir) {
+    int row = cell / this.width;
+    int col = cell % this.width;
+    if (row == this.height - 1) {
+      return row * (2 * this.width - 1) + col;
     }
-    else if (ke.equals("right") &&
-        (this.player.x != this.width - 1) && 
-        mst.contains(new Edge(board.get(player.y).get(player.x + 1), 
-            board.get(player.y).get(player.x), 5))) {
-      visited.add(board.get(player.y).get(player.x + 1));
+    else if (dir == DOWN && col != this.width - 1) {
+      return row * (2 * this.width - 1) + 2 * col + 1;
     }
-    else if (ke.equals("down") &&
-        (this.player.y != this.height - 1) && 
-        mst.contains(new Edge(board.get(player.y + 1).get(player.x), 
-            board.get(player.y).get(player.x), 5))) {
-      visited.add(board.get(player.y + 1).get(player.x));
+    else {
+      return row * (2 * this.width - 1) + 2 * col;
     }
   }
 
+  //gives the cell this edge leaves from
+  public int edgeCell(int id) {
+    int row = id / (2 * this.width - 1);
+    int rest = id % (2 * this.width - 1);
+    if (row == this.height - 1) {
+      return this.cellAt(rest, row);
+    }
+    return this.cellAt(rest / 2, row);
+  }
 
-  //world end method
-  public WorldEnd worldEnds() {
-    WorldScene finalScene = this.makeScene();
-    if (this.playerSolved()) {
-      return new WorldEnd(true, this.winScene());
+  //gives the direction (RIGHT or DOWN) this edge leaves its cell in
+  public int edgeDir(int id) {
+    int row = id / (2 * this.width - 1);
+    int rest = id % (2 * this.width - 1);
+    if (row == this.height - 1) {
+      return RIGHT;
     }
-    else if (time == this.board.get(this.height - 1).get(this.width - 1).reachTime
-        && this.searchPath.size() > 1) {
-      return new WorldEnd(true, this.solveScene());
+    else if (rest % 2 == 1 || rest / 2 == this.width - 1) {
+      return DOWN;
     }
     else {
-      return new WorldEnd(false, finalScene);
+      return RIGHT;
     }
   }
 
-  //check if the player has solved the maze
-  public boolean playerSolved() {
-    return this.player.x == this.board.get(this.height - 1).get(this.width - 1).x
-        && this.player.y == this.board.get(this.height - 1).get(this.width - 1).y;
+  //EFFECT: opens the passage along this edge
+  public void openEdge(int id) {
+    this.open(this.edgeCell(id), this.edgeDir(id));
   }
 
-  //checks if the player has almost solved the maze
-  public boolean almostSolved() {
-    return Math.abs(this.player.x - this.board.get(this.height - 1).get(this.width - 1).x) <= 1
-        && Math.abs(this.player.y - this.board.get(this.height - 1).get(this.width - 1).y) <= 1;
+  //gives the number of bytes held by this grid
+  public long bytes() {
+    return 8L * this.passages.length;
   }
+}
 
-  //Image displayed when player wins
-  public WorldScene winScene() {
-    WorldScene scene = this.makeScene();
-    scene.placeImageXY(new AboveImage(new TextImage("GAME OVER. YOU SOLVED THE MAZE!", 20, 
-        new Color(51, 255, 255)), 
-        //whistle: counts the number of wrong moves
-        new TextImage("WRONG MOVES: " + (this.visited.size() - this.searchPath.size()), 
-            20,  new Color(51, 255, 255))), (this.width / 2) * CELL_SIZE,
-        (this.height / 2) * CELL_SIZE);
-    return scene;
+
+//the result of one maze generation: the ids of the spanning tree's edges in the order
+//Kruskal accepted them, and the grid of passages they open. Never changed once built;
+//the construction animation reads it through a cursor
+class SpanningTree {
+  final MazeGrid grid;
+  final int[] edges;
+
+  SpanningTree(MazeGrid grid, int[] edges) {
+    this.grid = grid;
+    this.edges = edges;
   }
 
-  //Image displayed when player wins
-  public WorldScene solveScene() {
-    WorldScene scene = this.makeScene();
-    scene.placeImageXY(new AboveImage(new TextImage("THE MAZE HAS BEEN SOLVED!", 20, 
-        new Color(51, 255, 255)), 
-        //whistle: counts the number of wrong moves
-        new TextImage("WRONG MOVES: " + (this.visited.size() - this.searchPath.size()), 
-            20,  new Color(51, 255, 255))), (this.width / 2) * CELL_SIZE,
-        (this.height / 2) * CELL_SIZE);
-    return scene;
+  //gives the number of edges in this tree
+  public int size() {
+    return this.edges.length;
   }
 
+  //gives the id of the i-th edge Kruskal accepted
+  public int edgeAt(int i) {
+    return this.edges[i];
+  }
 
-  //creates the entire maze of vertices
-  public ArrayList<ArrayList<Vertex>> createVertices() {
-    ArrayList<ArrayList<Vertex>> matrix = new ArrayList<ArrayList<Vertex>>();
-    int multiple = 0;
-    for (int i = 0; i < this.height; i += 1 ) {
-      ArrayList<Vertex> rows = new  ArrayList<Vertex>();
-      for (int j = 0; j < this.width; j += 1) {
-        rows.add(j, new Vertex(j, i, multiple + j));
+  //runs Kruskal over the edges of a width x height grid, taking them by increasing
+  //weight and, between equal weights, by id
+  static SpanningTree kruskal(int width, int height, int[] weights) {
+    return kruskalInOrder(width, height, byWeight(weights));
+  }
+
+  //runs Kruskal over the edges of a width x height grid, taking them in the given
+  //order of ids. The worklist is a primitive array walked by index
+  static SpanningTree kruskalInOrder(int width, int height, int[] worklist) {
+    MazeGrid grid = new MazeGrid(width, height);
+    DisjointSet representatives = new DisjointSet(grid.cells());
+    int[] edgesInTree = new int[Math.max(0, grid.cells() - 1)];
+    int count = 0;
+
+    for (int i = 0; i < worklist.length && count < edgesInTree.length; i += 1) {
+      int id = worklist[i];
+      int cell = grid.edgeCell(id);
+      int dir = grid.edgeDir(id);
+      if (representatives.union(cell, dir == MazeGrid.RIGHT ? cell + 1 : cell + width)) {
+        edgesInTree[count] = id;
+        count += 1;
+        grid.open(cell, dir);
       }
-      matrix.add(rows);
-      multiple += this.width;
     }
-    return matrix;
+    return new SpanningTree(grid, edgesInTree);
   }
 
-  //fixes the edges for each vertex in this grid and creates edges whenever a neighboring
-  //vertex is not itself
-  public void fixConnections() {
-    ArrayList<ArrayList<Vertex>> grid = this.createVertices();
-    Random rand = new Random();
-    Edge e;
-    for (int i = 0; i < this.height; i += 1) {
-      for (int j = 0; j < this.width; j += 1) {
-        if ((j != width - 1)) {
-          e = new Edge(grid.get(i).get(j), grid.get(i).get(j + 1), 
-              rand.nextInt(this.height * this.width));
-          grid.get(i).get(j).outEdges.add(e);
-          grid.get(i).get(j + 1).outEdges.add(e);
-        }
-        if ((i != height - 1)) {
-          e = new Edge(grid.get(i).get(j), grid.get(i + 1).get(j), 
-              rand.nextInt(this.height * this.width));
-          grid.get(i).get(j).outEdges.add(e);
-          grid.get(i + 1).get(j).outEdges.add(e);
-        }
+  //gives the edge ids ordered by weight and, between equal weights, by id. Random
+  //weights fall in a range about the size of the edge count, so they are counted into
+  //buckets in linear time; weights spread any wider are packed with their ids into
+  //longs and sorted
+  static int[] byWeight(int[] weights) {
+    int[] order = new int[weights.length];
+    if (weights.length == 0) {
+      return order;
+    }
+    int min = weights[0];
+    int max = weights[0];
+    for (int w : weights) {
+      min = Math.min(min, w);
+      max = Math.max(max, w);
+    }
+    long range = (long) max - min + 1;
+    if (range > 2L * weights.length + 1024) {
+      long[] packed = new long[weights.length];
+      for (int id = 0; id < weights.length; id += 1) {
+        packed[id] = ((long) weights[id] << 32) | id;
       }
+      Arrays.sort(packed);
+      for (int i = 0; i < packed.length; i += 1) {
+        order[i] = (int) packed[i];
+      }
+      return order;
     }
-    this.board = grid;
+    int[] start = new int[(int) range + 1];
+    for (int w : weights) {
+      start[w - min + 1] += 1;
+    }
+    for (int b = 1; b < start.length; b += 1) {
+      start[b] += start[b - 1];
+    }
+    for (int id = 0; id < weights.length; id += 1) {
+      int b = weights[id] - min;
+      order[start[b]] = id;
+      start[b] += 1;
+    }
+    return order;
   }
 
-  //gets all the edges that connect the vertices in the graph
-  public ArrayList<Edge> getAllEdges() {
-    ArrayList<Edge> seen = new ArrayList<Edge>();
-    for (int i = 0; i < this.height; i += 1) {
-      for (int j = 0; j < this.width; j += 1) {
-        for (Edge e : this.board.get(i).get(j).outEdges) {
-          if (!seen.contains(e)) {
-            seen.add(e); 
-          }
+  //gives the ids 0 to count - 1 in a uniformly random order (Fisher-Yates)
+  static int[] shuffledIds(int count, SplittableRandom rand) {
+    int[] ids = new int[count];
+    for (int i = 0; i < count; i += 1) {
+      ids[i] = i;
+    }
+    for (int i = count - 1; i > 0; i -= 1) {
+      int j = rand.nextInt(i + 1);
+      int swap = ids[i];
+      ids[i] = ids[j];
+      ids[j] = swap;
+    }
+    return ids;
+  }
+
+  //makes a random maze by running Kruskal over the edges in shuffled order, which
+  //is what random weights are for, without drawing or ordering any weights
+  static SpanningTree shuffled(int width, int height, SplittableRandom rand) {
+    return kruskalInOrder(width, height, 
+        shuffledIds(MazeGrid.edgeCount(width, height), rand));
+  }
+
+  //gives the tree whose edges are the open passages of this grid, listed by id. The
+  //passage bits are taken a word at a time, set bit by set bit; bit p of word i is
+  //direction p % 2 out of cell 32 * i + p / 2, whose id in row y is 2 * cell - y + dir,
+  //except down the last column and along the last row
+  static SpanningTree of(MazeGrid grid) {
+    int count = 0;
+    for (long bits : grid.passages) {
+      count += Long.bitCount(bits);
+    }
+    int[] edges = new int[count];
+    int k = 0;
+    int width = grid.width;
+    int lastRow = (grid.height - 1) * width;
+    int y = 0;
+    int nextRow = width;
+    for (int i = 0; i < grid.passages.length; i += 1) {
+      long bits = grid.passages[i];
+      while (bits != 0) {
+        int p = Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        int cell = (i << 5) + (p >>> 1);
+        while (cell >= nextRow) {
+          y += 1;
+          nextRow += width;
+        }
+        if (cell >= lastRow) {
+          edges[k] = cell + y * (width - 1);
         }
+        else {
+          int down = p & 1;
+          edges[k] = 2 * cell - y + (cell == nextRow - 1 ? 0 : down);
+        }
+        k += 1;
       }
     }
-    return seen;
+    return new SpanningTree(grid, edges);
   }
 
-  //sorts all the edges in this graph by their weights
-  public ArrayList<Edge> sortEdges(ArrayList<Edge> allEdges) {
-    Collections.sort(allEdges);
-    return allEdges;
+  //runs Boruvka over the edges of a width x height grid on the given pool. The edges
+  //are ranked by weight and then id exactly as in kruskal, so all ranks are distinct,
+  //the tree is unique and its passages are the ones kruskal opens. The tree's edges
+  //are listed by id rather than in the order they were found
+  static SpanningTree boruvka(int width, int height, int[] weights, ForkJoinPool pool) {
+    return new Boruvka(width, height, weights, Boruvka.GRAIN).run(pool);
   }
 
+  //makes a random maze, weighing its edges the way Graph.fixConnections does
+  static SpanningTree random(int width, int height, SplittableRandom rand) {
+    return kruskal(width, height, randomWeights(width, height, rand));
+  }
 
-  //implements the Kruskal algorithm
-  public List<Edge> kruskal() {
-    HashMap<Vertex, Vertex> representatives = new HashMap<Vertex, Vertex>();
-    List<Edge> edgesInTree = new ArrayList<Edge>();
-    List<Edge> worklist = this.getAllEdges();
-    Collections.sort(worklist);
+  //gives every edge of a width x height grid a random weight below width * height
+  static int[] randomWeights(int width, int height, SplittableRandom rand) {
+    return randomWeights(width, height, rand, null);
+  }
 
-    //initialize every node's representative to itself
-    for (int i = 0; i < this.height; i += 1) {
-      for (int j = 0; j < this.width; j += 1) {
-        representatives.put(board.get(i).get(j), board.get(i).get(j)); 
-      }
+  //gives every edge a random weight below width * height, drawing the weights of each
+  //chunk of WeightChunks.SIZE edges from its own split of rand. The splits are taken
+  //in chunk order before any weight is drawn, so the weights are the same whether the
+  //chunks are then filled on this thread (pool is null) or on every thread of a pool
+  static int[] randomWeights(int width, int height, SplittableRandom rand, 
+      ForkJoinPool pool) {
+    int[] weights = new int[MazeGrid.edgeCount(width, height)];
+    SplittableRandom[] streams = 
+        new SplittableRandom[(weights.length + WeightChunks.SIZE - 1) / WeightChunks.SIZE];
+    for (int k = 0; k < streams.length; k += 1) {
+      streams[k] = rand.split();
     }
-    while (worklist.size() > 0) {
-      Edge e = worklist.remove(0);
-
-      if (find(representatives, e.from).equals(find(representatives, e.to))) {  
-        //does nothing
-      }
-      else {
-        edgesInTree.add(e);
-        this.union(representatives, find(representatives, e.from), find(representatives, e.to));
-      }
+    WeightChunks fill = new WeightChunks(weights, streams, width * height, 0, streams.length);
+    if (pool == null) {
+      fill.fill();
+    }
+    else {
+      pool.invoke(fill);
     }
-    return edgesInTree;
+    return weights;
+  }
+}
+
+
+//fills chunks [lo, hi) of an array of edge weights, each chunk from its own random
+//stream, splitting the range in halves so that chunks can be filled in parallel
+class WeightChunks extends RecursiveAction {
+  static final int SIZE = 1 << 16;
+  //tasks are never serialized; declared so -Xlint:all stays quiet
+  private static final long serialVersionUID = 1L;
+
+  int[] weights;
+  SplittableRandom[] streams;
+  int bound;
+  int lo;
+  int hi;
+
+  WeightChunks(int[] weights, SplittableRandom[] streams, int bound, int lo, int hi) {
+    this.weights = weights;
+    this.streams = streams;
+    this.bound = bound;
+    this.lo = lo;
+    this.hi = hi;
   }
 
-  //returns the representative for this vertex
-  public Vertex find(HashMap<Vertex, Vertex> representative, Vertex v) {
-    if (representative.get(v).equals(v)) {
-      return representative.get(v);
+  protected void compute() {
+    if (this.hi - this.lo > 1) {
+      int mid = (this.lo + this.hi) >>> 1;
+      invokeAll(new WeightChunks(this.weights, this.streams, this.bound, this.lo, mid), 
+          new WeightChunks(this.weights, this.streams, this.bound, mid, this.hi));
     }
     else {
-      return find(representative, representative.get(v));
+      this.fill();
     }
   }
 
-  public void union(HashMap<Vertex, Vertex> representatives, Vertex v1, Vertex v2) {
-    representatives.put(v2, v1);
+  //EFFECT: fills the chunks of this range one after the other, on this thread
+  void fill() {
+    for (int k = this.lo; k < this.hi; k += 1) {
+      int end = Math.min(this.weights.length, (k + 1) * SIZE);
+      for (int id = k * SIZE; id < end; id += 1) {
+        this.weights[id] = this.streams[k].nextInt(this.bound);
+      }
+    }
   }
+}
 
 
-  //implements the breadth first search 
-  public void findPathDFS(Vertex from, Vertex to) {
-    this.findPath(from, to, new Stack<Vertex>());
+//one run of Boruvka's algorithm on a grid. Each round has two parallel phases over
+//the cells: scan finds, for every component, its lightest edge to another component,
+//and link joins the components along those edges. Every round at least halves the
+//number of components, so a maze of n cells takes at most log n rounds
+class Boruvka {
+  static final int GRAIN = 1 << 14;
+  static final long NONE = Long.MAX_VALUE;
+
+  MazeGrid grid;
+  int[] weights;
+  int grain;
+  ConcurrentDisjointSet sets;
+  AtomicLongArray lightest;
+  int[] accepted;
+  AtomicInteger count;
+
+  Boruvka(int width, int height, int[] weights, int grain) {
+    this.grid = new MazeGrid(width, height);
+    this.weights = weights;
+    this.grain = grain;
+    this.sets = new ConcurrentDisjointSet(this.grid.cells());
+    this.lightest = new AtomicLongArray(this.grid.cells());
+    for (int cell = 0; cell < this.grid.cells(); cell += 1) {
+      this.lightest.set(cell, NONE);
+    }
+    this.accepted = new int[Math.max(0, this.grid.cells() - 1)];
+    this.count = new AtomicInteger(0);
   }
 
-  //implements the depth first search
-  public void findPathBFS(Vertex from, Vertex to) {
-    this.findPath(from, to, new Queue<Vertex>());
+  //gives the rank of this edge: its weight, then its id, packed into one long
+  long rank(int id) {
+    return ((long) this.weights[id] << 32) | id;
   }
 
+  //runs rounds until no component has an edge out of it, then opens the passages
+  SpanningTree run(ForkJoinPool pool) {
+    int before = -1;
+    while (this.count.get() > before && this.count.get() < this.accepted.length) {
+      before = this.count.get();
+      pool.invoke(new BoruvkaStep(this, false, 0, this.grid.cells()));
+      pool.invoke(new BoruvkaStep(this, true, 0, this.grid.cells()));
+    }
+    for (int i = 0; i < this.count.get(); i += 1) {
+      this.grid.openEdge(this.accepted[i]);
+    }
+    return SpanningTree.of(this.grid);
+  }
 
-  //the generic find path method: helper to both findPathDFS and findPathBFS
-  public void findPath(Vertex from, Vertex to, ICollection<Vertex> worklist) {
-    int count = 0;
-    HashMap<Vertex, Vertex> cameFromEdge = new HashMap<Vertex, Vertex>();
-    worklist.add(from);
-    cameFromEdge.put(from, from);
+  //EFFECT: offers the right and down edges of the cells in [lo, hi) to the components
+  //on both of their ends, keeping for each component the lightest edge it is offered
+  void scan(int lo, int hi) {
+    int width = this.grid.width;
+    for (int cell = lo; cell < hi; cell += 1) {
+      int r = this.sets.find(cell);
+      if (cell % width != width - 1) {
+        this.offer(r, cell + 1, this.grid.edgeId(cell, MazeGrid.RIGHT));
+      }
+      if (cell + width < this.grid.cells()) {
+        this.offer(r, cell + width, this.grid.edgeId(cell, MazeGrid.DOWN));
+      }
+    }
+  }
+
+  //EFFECT: offers the edge from a component to this cell to both of their components,
+  //unless the cell already belongs to that component
+  void offer(int r, int cell, int id) {
+    int s = this.sets.find(cell);
+    if (r != s) {
+      long rank = this.rank(id);
+      this.keepLightest(r, rank);
+      this.keepLightest(s, rank);
+    }
+  }
+
+  //EFFECT: lowers the lightest edge of this component to this rank if it is lower
+  void keepLightest(int r, long rank) {
+    long current = this.lightest.get(r);
+    while (rank < current && !this.lightest.compareAndSet(r, current, rank)) {
+      current = this.lightest.get(r);
+    }
+  }
+
+  //EFFECT: joins each component in [lo, hi) to the one its lightest edge leads to.
+  //When two components picked the same edge only the first union takes it
+  void link(int lo, int hi) {
+    for (int r = lo; r < hi; r += 1) {
+      long rank = this.lightest.get(r);
+      if (rank != NONE) {
+        this.lightest.set(r, NONE);
+        int id = (int) rank;
+        int cell = this.grid.edgeCell(id);
+        int other = this.grid.edgeDir(id) == MazeGrid.RIGHT ? cell + 1 : cell + this.grid.width;
+        if (this.sets.union(cell, other)) {
+          this.accepted[this.count.getAndIncrement()] = id;
+        }
+      }
+    }
+  }
+}
+
+
+//one phase of a Boruvka round over a range of cells, split in halves until a range
+//is small enough for one thread
+class BoruvkaStep extends RecursiveAction {
+  //tasks are never serialized; declared so -Xlint:all stays quiet
+  private static final long serialVersionUID = 1L;
+
+  Boruvka run;
+  boolean link;
+  int lo;
+  int hi;
+
+  BoruvkaStep(Boruvka run, boolean link, int lo, int hi) {
+    this.run = run;
+    this.link = link;
+    this.lo = lo;
+    this.hi = hi;
+  }
+
+  protected void compute() {
+    if (this.hi - this.lo > this.run.grain) {
+      int mid = (this.lo + this.hi) >>> 1;
+      invokeAll(new BoruvkaStep(this.run, this.link, this.lo, mid), 
+          new BoruvkaStep(this.run, this.link, mid, this.hi));
+    }
+    else if (this.link) {
+      this.run.link(this.lo, this.hi);
+    }
+    else {
+      this.run.scan(this.lo, this.hi);
+    }
+  }
+}
+
+
+//per-cell bitmasks of the directions the player can move in, built once from the
+//passages of the spanning tree so that a move check is a single array lookup
+class PassageIndex {
+  static final int UP = 1;
+  static final int LEFT = 2;
+  static final int RIGHT = 4;
+  static final int DOWN = 8;
+
+  int width;
+  byte[] exits;
+
+  PassageIndex(MazeGrid grid) {
+    this.width = grid.width;
+    this.exits = new byte[grid.cells()];
+    for (int cell = 0; cell < this.exits.length; cell += 1) {
+      if (grid.canGoRight(cell)) {
+        this.exits[cell] |= RIGHT;
+        this.exits[cell + 1] |= LEFT;
+      }
+      if (grid.canGoDown(cell)) {
+        this.exits[cell] |= DOWN;
+        this.exits[cell + this.width] |= UP;
+      }
+    }
+  }
+
+  //gives the direction bit for this key, or 0 if the key is not an arrow key
+  static int direction(String ke) {
+    if (ke.equals("up")) {
+      return UP;
+    }
+    else if (ke.equals("left")) {
+      return LEFT;
+    }
+    else if (ke.equals("right")) {
+      return RIGHT;
+    }
+    else if (ke.equals("down")) {
+      return DOWN;
+    }
+    else {
+      return 0;
+    }
+  }
+
+  //checks if there is a passage out of this cell in the given direction
+  public boolean canMove(int cell, int dir) {
+    return (this.exits[cell] & dir) != 0;
+  }
+
+  //gives the cell one step away from this one in the given direction
+  public int neighbor(int cell, int dir) {
+    if (dir == UP) {
+      return cell - this.width;
+    }
+    else if (dir == LEFT) {
+      return cell - 1;
+    }
+    else if (dir == RIGHT) {
+      return cell + 1;
+    }
+    else {
+      return cell + this.width;
+    }
+  }
+}
+
+
+//a set of edges keyed on Edge.key(), so that an edge and its reverse are the same
+//entry; open addressing with linear probing keeps add, contains and remove O(1)
+class EdgeSet implements Iterable<Edge> {
+  long[] keys;
+  Edge[] slots;
+  int size;
+
+  EdgeSet(int expected) {
+    int capacity = 4;
+    while (capacity < 2 * expected) {
+      capacity *= 2;
+    }
+    this.keys = new long[capacity];
+    this.slots = new Edge[capacity];
+    this.size = 0;
+  }
+
+  //makes a set of all the given edges
+  EdgeSet(List<Edge> edges) {
+    this(edges.size());
+    for (Edge e : edges) {
+      this.add(e);
+    }
+  }
+
+  //gives the number of edges in this set
+  public int size() {
+    return this.size;
+  }
+
+  //gives the slot the given key is looked up from
+  int home(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (this.slots.length - 1);
+  }
+
+  //gives the slot holding the given key, or -1
+  int indexOf(long key) {
+    int i = this.home(key);
+    while (this.slots[i] != null) {
+      if (this.keys[i] == key) {
+        return i;
+      }
+      i = (i + 1) & (this.slots.length - 1);
+    }
+    return -1;
+  }
+
+  //checks if this set has an edge between the same two vertices as e
+  public boolean contains(Edge e) {
+    return this.indexOf(e.key()) >= 0;
+  }
+
+  //EFFECT: adds e to this set; returns false if an equal edge was already in it
+  public boolean add(Edge e) {
+    if (2 * (this.size + 1) > this.slots.length) {
+      this.grow();
+    }
+    long key = e.key();
+    int i = this.home(key);
+    while (this.slots[i] != null) {
+      if (this.keys[i] == key) {
+        return false;
+      }
+      i = (i + 1) & (this.slots.length - 1);
+    }
+    this.keys[i] = key;
+    this.slots[i] = e;
+    this.size += 1;
+    return true;
+  }
+
+  //EFFECT: removes the edge equal to e from this set; returns false if there was none
+  //shifts later entries of the probe run back so that no lookup stops early
+  public boolean remove(Edge e) {
+    int gap = this.indexOf(e.key());
+    if (gap < 0) {
+      return false;
+    }
+    int mask = this.slots.length - 1;
+    int j = gap;
+    while (true) {
+      j = (j + 1) & mask;
+      if (this.slots[j] == null) {
+        break;
+      }
+      int home = this.home(this.keys[j]);
+      boolean stays = gap < j ? (home > gap && home <= j) : (home > gap || home <= j);
+      if (!stays) {
+        this.keys[gap] = this.keys[j];
+        this.slots[gap] = this.slots[j];
+        gap = j;
+      }
+    }
+    this.slots[gap] = null;
+    this.size -= 1;
+    return true;
+  }
+
+  //EFFECT: doubles the table and puts every edge back
+  void grow() {
+    Edge[] old = this.slots;
+    this.keys = new long[old.length * 2];
+    this.slots = new Edge[old.length * 2];
+    this.size = 0;
+    for (Edge e : old) {
+      if (e != null) {
+        this.add(e);
+      }
+    }
+  }
+
+  //iterates over the edges in this set in table order
+  public Iterator<Edge> iterator() {
+    return new Iterator<Edge>() {
+      int next = this.skip(0);
+
+      //gives the first occupied slot at or after i
+      int skip(int i) {
+        while (i < EdgeSet.this.slots.length && EdgeSet.this.slots[i] == null) {
+          i += 1;
+        }
+        return i;
+      }
+
+      public boolean hasNext() {
+        return this.next < EdgeSet.this.slots.length;
+      }
+
+      public Edge next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        Edge e = EdgeSet.this.slots[this.next];
+        this.next = this.skip(this.next + 1);
+        return e;
+      }
+    };
+  }
+}
+
+
+//searches the passages of a maze with the same steps as Graph.findPath, but on
+//cells instead of vertices: an int worklist, a bitset of visited cells and an int[]
+//of parents. The arrays are made once per maze and reused by every search; so are the
+//worklists, each made the first time a search needs it
+class MazeSolver {
+  //how many cells a solver with a progress counter expands between updates of it
+  static final int PUBLISH_EVERY = 64;
+
+  PassageIndex passages;
+  long[] seen;
+  long[] touched;
+  long[] touchedBack;
+  int[] parent;
+  int[] parentBack;
+  int[] depth;
+  int[] reachTime;
+  int[] order;
+  int visitedCount;
+  int[] reached;
+  int reachedCount;
+  int[] path;
+  int pathLength;
+  CellQueue queue;
+  CellQueue queueBack;
+  CellStack stack;
+  CellHeap heap;
+  AtomicInteger progress;
+  volatile boolean cancelled;
+
+  MazeSolver(PassageIndex passages) {
+    int cells = passages.exits.length;
+    this.passages = passages;
+    this.seen = new long[(cells + 63) / 64];
+    this.touched = new long[(cells + 63) / 64];
+    this.touchedBack = new long[(cells + 63) / 64];
+    this.parent = new int[cells];
+    this.parentBack = new int[cells];
+    this.depth = new int[cells];
+    this.reachTime = new int[cells];
+    this.order = new int[cells];
+    this.reached = new int[cells];
+    this.path = new int[cells];
+    this.queue = null;
+    this.queueBack = null;
+    this.stack = null;
+    this.heap = null;
+    this.progress = null;
+    this.cancelled = false;
+  }
+
+  //gives this solver's queue, emptied
+  public CellQueue queue() {
+    if (this.queue == null) {
+      this.queue = new CellQueue(this.parent.length);
+    }
+    this.queue.clear();
+    return this.queue;
+  }
+
+  //gives this solver's second queue, for a search from the other end, emptied
+  public CellQueue queueBack() {
+    if (this.queueBack == null) {
+      this.queueBack = new CellQueue(this.parent.length);
+    }
+    this.queueBack.clear();
+    return this.queueBack;
+  }
+
+  //gives this solver's stack, emptied
+  public CellStack stack() {
+    if (this.stack == null) {
+      this.stack = new CellStack(this.parent.length);
+    }
+    this.stack.clear();
+    return this.stack;
+  }
+
+  //gives this solver's heap, emptied and keyed by the distance to this target
+  public CellHeap heap(int target) {
+    if (this.heap == null) {
+      this.heap = new CellHeap(this.parent.length, this.depth, this.passages.width, target);
+    }
+    this.heap.clear(target);
+    return this.heap;
+  }
+
+  //checks if this cell is marked in the given bitset
+  static boolean isSet(long[] bits, int cell) {
+    return (bits[cell >>> 6] & (1L << cell)) != 0;
+  }
+
+  //EFFECT: marks this cell in the given bitset
+  static void set(long[] bits, int cell) {
+    bits[cell >>> 6] |= 1L << cell;
+  }
+
+  //EFFECT: runs the named search, "bfs", "dfs", "astar" or "bidirectional", from one
+  //cell to the other
+  public void solve(String algorithm, int from, int to) {
+    if (algorithm.equals("bfs")) {
+      this.solve(from, to, this.queue());
+    }
+    else if (algorithm.equals("dfs")) {
+      this.solve(from, to, this.stack());
+    }
+    else if (algorithm.equals("astar")) {
+      this.solve(from, to, this.heap(to));
+    }
+    else if (algorithm.equals("bidirectional")) {
+      this.solveBidirectional(from, to);
+    }
+    else {
+      throw new IllegalArgumentException("unknown solver: " + algorithm);
+    }
+  }
+
+  //EFFECT: searches from one cell to the other, taking cells off the worklist one by one
+  //afterwards order holds the visited cells, path the cells from `to` back to (but not
+  //including) `from`, and reachTime the step at which each reached cell was added
+  public void solve(int from, int to, ICellCollection worklist) {
+    Arrays.fill(this.seen, 0);
+    Arrays.fill(this.touched, 0);
+    this.visitedCount = 0;
+    this.reachedCount = 0;
+    this.pathLength = 0;
+    int count = 0;
+    this.parent[from] = from;
+    this.depth[from] = 0;
+    worklist.add(from);
+
+    while (worklist.size() > 0) {
+      int current = worklist.remove();
+
+      if (isSet(this.seen, current)) {
+        // Discard node : Do nothing
+      }
+      else if (current == to) {
+        while (current != this.parent[current]) {
+          this.path[this.pathLength] = current;
+          this.pathLength += 1;
+          current = this.parent[current];
+        }
+        return;
+      }
+      else {
+        //neighbours in the order up, left, right, down, like Graph.neighbors
+        for (int dir = PassageIndex.UP; dir <= PassageIndex.DOWN; dir *= 2) {
+          if (this.passages.canMove(current, dir)) {
+            int next = this.passages.neighbor(current, dir);
+            if (!isSet(this.seen, next)) {
+              this.parent[next] = current;
+              this.depth[next] = this.depth[current] + 1;
+              this.reachTime[next] = count;
+              worklist.add(next);
+              if (!isSet(this.touched, next)) {
+                set(this.touched, next);
+                this.reached[this.reachedCount] = next;
+                this.reachedCount += 1;
+              }
+            }
+          }
+        }
+        set(this.seen, current);
+        this.order[this.visitedCount] = current;
+        this.visitedCount += 1;
+        if (!this.publish()) {
+          return;
+        }
+      }
+      count ++;
+    }
+  }
+
+  //EFFECT: every PUBLISH_EVERY cells, lets another thread watching progress read the
+  //cells of order expanded so far; gives false if the search has been cancelled
+  boolean publish() {
+    if (this.progress != null && this.visitedCount % PUBLISH_EVERY == 0) {
+      this.progress.lazySet(this.visitedCount);
+      return !this.cancelled;
+    }
+    return true;
+  }
+
+  //EFFECT: searches breadth first from both cells at once, one cell from each end in
+  //turn, until a cell reached from one end has a neighbour reached from the other.
+  //Fills order, path, reachTime and reached the way solve does; `to` is reached when
+  //the two searches meet
+  public void solveBidirectional(int from, int to) {
+    Arrays.fill(this.touched, 0);
+    Arrays.fill(this.touchedBack, 0);
+    this.visitedCount = 0;
+    this.reachedCount = 0;
+    this.pathLength = 0;
+    if (from == to) {
+      return;
+    }
+    CellQueue forward = this.queue();
+    CellQueue backward = this.queueBack();
+    forward.add(from);
+    set(this.touched, from);
+    this.parent[from] = from;
+    backward.add(to);
+    set(this.touchedBack, to);
+    this.parentBack[to] = to;
+    int count = 0;
+
+    while (forward.size() > 0 && backward.size() > 0) {
+      boolean fromStart = count % 2 == 0;
+      CellQueue worklist = fromStart ? forward : backward;
+      long[] mine = fromStart ? this.touched : this.touchedBack;
+      long[] theirs = fromStart ? this.touchedBack : this.touched;
+      int[] parents = fromStart ? this.parent : this.parentBack;
+      int current = worklist.remove();
+      for (int dir = PassageIndex.UP; dir <= PassageIndex.DOWN; dir *= 2) {
+        if (this.passages.canMove(current, dir)) {
+          int next = this.passages.neighbor(current, dir);
+          if (isSet(theirs, next)) {
+            this.order[this.visitedCount] = current;
+            this.visitedCount += 1;
+            this.reachTime[to] = count;
+            this.reached[this.reachedCount] = to;
+            this.reachedCount += 1;
+            this.meet(fromStart ? current : next, fromStart ? next : current, from, to);
+            return;
+          }
+          else if (!isSet(mine, next)) {
+            set(mine, next);
+            parents[next] = current;
+            this.reachTime[next] = count;
+            this.reached[this.reachedCount] = next;
+            this.reachedCount += 1;
+            worklist.add(next);
+          }
+        }
+      }
+      this.order[this.visitedCount] = current;
+      this.visitedCount += 1;
+      if (!this.publish()) {
+        return;
+      }
+      count ++;
+    }
+  }
+
+  //EFFECT: lays the path out through the edge where the searches met, from `to` back
+  //to (but not including) `from`; a was reached from `from` and b from `to`
+  void meet(int a, int b, int from, int to) {
+    for (int c = b; c != to; c = this.parentBack[c]) {
+      this.path[this.pathLength] = c;
+      this.pathLength += 1;
+    }
+    this.path[this.pathLength] = to;
+    this.pathLength += 1;
+    for (int i = 0; i < this.pathLength / 2; i += 1) {
+      int swap = this.path[i];
+      this.path[i] = this.path[this.pathLength - 1 - i];
+      this.path[this.pathLength - 1 - i] = swap;
+    }
+    for (int c = a; c != from; c = this.parent[c]) {
+      this.path[this.pathLength] = c;
+      this.pathLength += 1;
+    }
+  }
+}
+
+
+//one search, ready to be replayed: the cells it expanded in the order they are
+//revealed, the step each is revealed at and the path it found. It is copied out of
+//the solver once per search, so any number of rasters can replay it at once, each
+//with a cursor of its own, while the solver goes on to other searches
+class SearchReplay {
+  int[] order;
+  int[] revealAt;
+  int[] path;
+  int finish;
+
+  SearchReplay(int[] order, int[] revealAt, int[] path, int finish) {
+    this.order = order;
+    this.revealAt = revealAt;
+    this.path = path;
+    this.finish = finish;
+  }
+
+  //makes the replay of the search the solver last ran from one cell to the other. A
+  //cell is revealed at the step it was last added to the worklist, as Vertex.reachTime
+  //has it, and the start at step 0; cells revealed at the same step keep the order they
+  //were expanded in. The path is revealed once the end is
+  static SearchReplay of(MazeSolver s, int from, int to) {
+    int count = s.visitedCount;
+    int last = 0;
+    for (int i = 0; i < count; i += 1) {
+      last = Math.max(last, SearchReplay.revealTime(s, from, s.order[i]));
+    }
+    int[] starts = new int[last + 2];
+    for (int i = 0; i < count; i += 1) {
+      starts[SearchReplay.revealTime(s, from, s.order[i]) + 1] += 1;
+    }
+    for (int t = 1; t < starts.length; t += 1) {
+      starts[t] += starts[t - 1];
+    }
+    int[] order = new int[count];
+    int[] revealAt = new int[count];
+    for (int i = 0; i < count; i += 1) {
+      int time = SearchReplay.revealTime(s, from, s.order[i]);
+      order[starts[time]] = s.order[i];
+      revealAt[starts[time]] = time;
+      starts[time] += 1;
+    }
+    return new SearchReplay(order, revealAt, Arrays.copyOf(s.path, s.pathLength), 
+        from == to ? 0 : s.reachTime[to]);
+  }
+
+  //gives the step at which this expanded cell is revealed
+  static int revealTime(MazeSolver s, int from, int cell) {
+    return cell == from ? 0 : s.reachTime[cell];
+  }
+
+  //gives how many cells the search expanded
+  public int size() {
+    return this.order.length;
+  }
+
+  //checks if the path is revealed by this step
+  public boolean solvedBy(int time) {
+    return time >= this.finish;
+  }
+}
+
+
+//a race between searches on one maze: each runs on a thread of its own, with a
+//MazeSolver of its own over the maze's PassageIndex, which none of them changes. The
+//render thread follows each search through its racer's progress counter and picks up
+//the replay once the search is done, so nothing is locked and no frame waits on a search
+class MazeRace {
+  final ArrayList<MazeRacer> racers;
+  final ForkJoinPool pool;
+  //the searches still running; the last one to stop shuts the pool down
+  final AtomicInteger running;
+
+  MazeRace(PassageIndex passages, String[] algorithms, int from, int to) {
+    this.racers = new ArrayList<MazeRacer>();
+    for (String name : algorithms) {
+      MazeRacer racer = new MazeRacer(name, new MazeSolver(passages), from, to);
+      racer.race = this;
+      this.racers.add(racer);
+    }
+    this.pool = new ForkJoinPool(algorithms.length);
+    this.running = new AtomicInteger(algorithms.length);
+  }
+
+  //EFFECT: sets every search off on a thread of its own
+  public void start() {
+    for (MazeRacer racer : this.racers) {
+      this.pool.execute(racer);
+    }
+  }
+
+  //checks if every search has finished or failed
+  public boolean finished() {
+    for (MazeRacer racer : this.racers) {
+      if (!racer.done()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  //EFFECT: counts off a search that has stopped; once none is left running, the
+  //pool's threads are let go
+  void stopped() {
+    if (this.running.decrementAndGet() == 0) {
+      this.pool.shutdown();
+    }
+  }
+
+  //EFFECT: stops the searches still running
+  public void close() {
+    for (MazeRacer racer : this.racers) {
+      racer.solver.cancelled = true;
+    }
+    this.pool.shutdownNow();
+  }
+}
+
+
+//one search of a MazeRace. Its solver publishes to progress how many cells it has
+//expanded, and that many cells of solver.order may be read from any thread; result is
+//set once, to the replay of the finished search, or else failure is set to what the
+//search threw
+class MazeRacer implements Runnable {
+  final String name;
+  final MazeSolver solver;
+  final int from;
+  final int to;
+  final AtomicInteger progress;
+  final AtomicReference<SearchReplay> result;
+  volatile Throwable failure;
+  long nanos;
+  MazeRace race;
+
+  MazeRacer(String name, MazeSolver solver, int from, int to) {
+    this.name = name;
+    this.solver = solver;
+    this.from = from;
+    this.to = to;
+    this.progress = new AtomicInteger(0);
+    this.result = new AtomicReference<SearchReplay>(null);
+    this.solver.progress = this.progress;
+    this.race = null;
+  }
+
+  //runs the search; whatever it throws is kept in failure rather than lost on the
+  //pool's thread, so the race can show it and stop waiting for this search
+  public void run() {
+    long begin = System.nanoTime();
+    try {
+      this.solver.solve(this.name, this.from, this.to);
+      if (!this.solver.cancelled) {
+        this.nanos = System.nanoTime() - begin;
+        Graph.metrics.time("race." + this.name, this.nanos);
+        Graph.metrics.count("race." + this.name + ".expanded", this.solver.visitedCount);
+        this.progress.set(this.solver.visitedCount);
+        this.result.set(SearchReplay.of(this.solver, this.from, this.to));
+      }
+    }
+    catch (Throwable e) {
+      this.failure = e;
+    }
+    finally {
+      if (this.race != null) {
+        this.race.stopped();
+      }
+    }
+  }
+
+  //checks if the search has finished or failed
+  public boolean done() {
+    return this.result.get() != null || this.failure != null;
+  }
+
+  //gives how far the search has got: the cells it expanded, and once it is done how
+  //long that took, or what it failed with
+  public String caption() {
+    if (this.failure != null) {
+      return this.name + ": failed, " + this.failure;
+    }
+    SearchReplay done = this.result.get();
+    if (done == null) {
+      return this.name + ": " + this.progress.get();
+    }
+    return this.name + ": " + done.size() + " in " + String.format("%.1f ms", this.nanos / 1e6);
+  }
+}
+
+
+//disjoint sets of cells that several threads can find and union at once. A root is
+//only ever hung under a smaller root, with a compare-and-set, so no cycle can form;
+//finds halve the path with compare-and-sets that may lose a race harmlessly
+class ConcurrentDisjointSet {
+  AtomicIntegerArray parent;
+
+  ConcurrentDisjointSet(int size) {
+    this.parent = new AtomicIntegerArray(size);
+    for (int i = 0; i < size; i += 1) {
+      this.parent.set(i, i);
+    }
+  }
+
+  //returns the representative of this cell, halving the path on the way up
+  public int find(int cell) {
+    int p = this.parent.get(cell);
+    while (p != cell) {
+      int grandparent = this.parent.get(p);
+      if (grandparent != p) {
+        this.parent.compareAndSet(cell, p, grandparent);
+      }
+      cell = grandparent;
+      p = this.parent.get(cell);
+    }
+    return cell;
+  }
+
+  //EFFECT: joins the sets of the two cells, hanging the larger root under the smaller
+  //returns false if they were already in the same set
+  public boolean union(int c1, int c2) {
+    while (true) {
+      int r1 = this.find(c1);
+      int r2 = this.find(c2);
+      if (r1 == r2) {
+        return false;
+      }
+      int lo = Math.min(r1, r2);
+      int hi = Math.max(r1, r2);
+      if (this.parent.compareAndSet(hi, hi, lo)) {
+        return true;
+      }
+    }
+  }
+}
+
+
+//represents disjoint sets of cells keyed by Vertex.name, with path compression
+//and union by rank so that a run of Kruskal stays close to linear
+class DisjointSet {
+  int[] parent;
+  byte[] rank;
+
+  DisjointSet(int size) {
+    this.parent = new int[size];
+    this.rank = new byte[size];
+    for (int i = 0; i < size; i += 1) {
+      this.parent[i] = i;
+    }
+  }
+
+  //returns the representative of this cell, halving the path on the way up
+  public int find(int cell) {
+    while (this.parent[cell] != cell) {
+      this.parent[cell] = this.parent[this.parent[cell]];
+      cell = this.parent[cell];
+    }
+    return cell;
+  }
+
+  //EFFECT: joins the sets of the two cells, hanging the shorter tree under the taller
+  //returns false if they were already in the same set
+  public boolean union(int c1, int c2) {
+    int r1 = this.find(c1);
+    int r2 = this.find(c2);
+    if (r1 == r2) {
+      return false;
+    }
+    if (this.rank[r1] < this.rank[r2]) {
+      this.parent[r1] = r2;
+    }
+    else if (this.rank[r1] > this.rank[r2]) {
+      this.parent[r2] = r1;
+    }
+    else {
+      this.parent[r2] = r1;
+      this.rank[r1] += 1;
+    }
+    return true;
+  }
+}
+
+
+//a maze with no window and no javalib state: the passages of one random spanning
+//tree, made from a seed so the same arguments always give the same maze, on any
+//number of threads, and the same maze as a Graph made from that seed. Each maze
+//owns all of its arrays, so mazes can be made and solved in bulk without a Graph
+class Maze {
+  static final String KRUSKAL = "kruskal";
+  static final String BORUVKA = "boruvka";
+  static final String SHUFFLE = "shuffle";
+
+  final int width;
+  final int height;
+  final long seed;
+  final SpanningTree tree;
+  final MazeGrid grid;
+  MazeSolver solver;
+
+  Maze(int width, int height, long seed, SpanningTree tree) {
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+    this.tree = tree;
+    this.grid = tree.grid;
+    this.solver = null;
+  }
+
+  //makes the maze the named algorithm ("kruskal", "shuffle" or "boruvka") builds
+  //from this seed
+  static Maze generate(int width, int height, long seed, String algorithm) {
+    if (algorithm.equals(KRUSKAL)) {
+      return new Maze(width, height, seed, 
+          SpanningTree.random(width, height, new SplittableRandom(seed)));
+    }
+    else if (algorithm.equals(SHUFFLE)) {
+      return new Maze(width, height, seed, 
+          SpanningTree.shuffled(width, height, new SplittableRandom(seed)));
+    }
+    else if (algorithm.equals(BORUVKA)) {
+      ForkJoinPool pool = ForkJoinPool.commonPool();
+      return new Maze(width, height, seed, SpanningTree.boruvka(width, height, 
+          SpanningTree.randomWeights(width, height, new SplittableRandom(seed), pool), pool));
+    }
+    else {
+      throw new IllegalArgumentException("unknown generator: " + algorithm);
+    }
+  }
+
+  //gives the cell at the bottom right corner, where every solution ends
+  public int end() {
+    return this.width * this.height - 1;
+  }
+
+  //gives the solver engine of this maze, making it on first use
+  public MazeSolver solver() {
+    if (this.solver == null) {
+      this.solver = new MazeSolver(new PassageIndex(this.grid));
+    }
+    return this.solver;
+  }
+
+  //solves this maze from the top left to the bottom right corner with the named
+  //solver: "bfs", "dfs", "astar" or "bidirectional"
+  public MazeSolution solve(String algorithm) {
+    MazeSolver s = this.solver();
+    s.solve(algorithm, 0, this.end());
+    int[] path = new int[s.pathLength + 1];
+    for (int i = 0; i < s.pathLength; i += 1) {
+      path[s.pathLength - i] = s.path[i];
+    }
+    return new MazeSolution(this, path, s.visitedCount);
+  }
+
+  //EFFECT: writes this maze to the stream as a maze file (see MazeFile)
+  public void write(DataOutputStream out) throws IOException {
+    MazeFile.write(out, this.grid, this.seed);
+  }
+}
+
+
+//the answer a solver found for a Maze: the cells from the start to the end, both
+//included, and how many cells the solver expanded on the way. A MazePipeline also
+//hands over a failed maze as a solution whose failure is what went wrong
+class MazeSolution {
+  final Maze maze;
+  final int[] path;
+  final int expanded;
+  final Throwable failure;
+
+  MazeSolution(Maze maze, int[] path, int expanded) {
+    this.maze = maze;
+    this.path = path;
+    this.expanded = expanded;
+    this.failure = null;
+  }
+
+  //the solution of a maze that could not be made or solved
+  MazeSolution(Throwable failure) {
+    this.maze = null;
+    this.path = null;
+    this.expanded = 0;
+    this.failure = failure;
+  }
+
+  //gives the number of cells on the path
+  public int length() {
+    return this.path.length;
+  }
+}
+
+
+//makes a batch of mazes on a ForkJoinPool. Each worker claims the next maze number,
+//makes and solves that maze with arrays of its own, and hands the solution over
+//through a bounded queue, so a slow consumer holds the workers back instead of
+//filling the heap. Mazes come out in the order they finish; maze i has seed + i
+class MazePipeline {
+  //how many finished mazes the queue holds per worker before the workers wait
+  static final int QUEUED_PER_THREAD = 4;
+
+  final int count;
+  final int width;
+  final int height;
+  final long seed;
+  final String generator;
+  final String solver;
+  final ForkJoinPool pool;
+  final ArrayBlockingQueue<MazeSolution> results;
+  final AtomicInteger next;
+  int taken;
+
+  //a pipeline whose queue holds QUEUED_PER_THREAD mazes per worker
+  MazePipeline(int count, int width, int height, long seed, String generator, 
+      String solver, int threads) {
+    this(count, width, height, seed, generator, solver, threads, 
+        QUEUED_PER_THREAD * threads);
+  }
+
+  MazePipeline(int count, int width, int height, long seed, String generator, 
+      String solver, int threads, int capacity) {
+    this.count = count;
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+    this.generator = generator;
+    this.solver = solver;
+    //unknown names fail here, on the caller's thread, rather than in a worker
+    Maze.generate(1, 1, seed, generator).solve(solver);
+    this.results = new ArrayBlockingQueue<MazeSolution>(capacity);
+    this.next = new AtomicInteger(0);
+    this.taken = 0;
+    this.pool = new ForkJoinPool(threads);
+    for (int i = 0; i < threads; i += 1) {
+      this.pool.execute(new MazeWorker(this));
+    }
+  }
+
+  //checks if there are mazes left to take
+  public boolean hasNext() {
+    return this.taken < this.count;
+  }
+
+  //takes the next finished maze, waiting for a worker if none is ready; rethrows
+  //what went wrong if a worker failed to make or solve a maze, and stops the others
+  public MazeSolution next() throws InterruptedException {
+    MazeSolution result = this.results.take();
+    this.taken += 1;
+    if (result.failure != null) {
+      this.close();
+      if (result.failure instanceof RuntimeException) {
+        throw (RuntimeException) result.failure;
+      }
+      else if (result.failure instanceof Error) {
+        throw (Error) result.failure;
+      }
+      throw new IllegalStateException("a maze pipeline worker failed", result.failure);
+    }
+    if (!this.hasNext()) {
+      this.pool.shutdown();
+    }
+    return result;
+  }
+
+  //EFFECT: stops the workers, even if mazes are left
+  public void close() {
+    this.pool.shutdownNow();
+  }
+
+  //gives the number of the next maze to make, or -1 once every maze is claimed
+  int claim() {
+    int i = this.next.getAndIncrement();
+    return i < this.count ? i : -1;
+  }
+}
+
+
+//one worker of a MazePipeline: makes and solves mazes until none are left to claim.
+//A maze that fails still reaches the queue, as a failed solution, so the consumer
+//learns of it instead of waiting forever for a maze that never comes
+class MazeWorker implements Runnable {
+  MazePipeline pipeline;
+
+  MazeWorker(MazePipeline pipeline) {
+    this.pipeline = pipeline;
+  }
+
+  public void run() {
+    MazePipeline p = this.pipeline;
+    try {
+      for (int i = p.claim(); i >= 0; i = p.claim()) {
+        MazeSolution result;
+        try {
+          Maze maze = Maze.generate(p.width, p.height, p.seed + i, p.generator);
+          result = maze.solve(p.solver);
+          //the solver's arrays outweigh the maze many times over, and a queued
+          //solution needs only the maze and its path
+          maze.solver = null;
+        }
+        catch (Throwable e) {
+          p.results.put(new MazeSolution(e));
+          return;
+        }
+        p.results.put(result);
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
+
+
+//the layout of a maze file: a header of MAGIC, width, height and seed, then the
+//passage bits of each row, two per cell (RIGHT and DOWN as in MazeGrid), four cells
+//to a byte. Every row starts on a byte of its own, so a file can be written and read
+//one row at a time
+class MazeFile {
+  static final int MAGIC = 0x4D415A45;
+  static final int HEADER = 20;
+
+  //gives the number of bytes one row of this width takes
+  static int rowBytes(int width) {
+    return (width + 3) / 4;
+  }
+
+  //gives the RIGHT and DOWN bits of the cell at x in this row
+  static int passagesAt(byte[] row, int x) {
+    return (row[x >>> 2] >>> ((x & 3) << 1)) & 3;
+  }
+
+  //EFFECT: sets the given bits of the cell at x in this row
+  static void open(byte[] row, int x, int dir) {
+    row[x >>> 2] |= (byte) (dir << ((x & 3) << 1));
+  }
+
+  //EFFECT: writes the header of a maze file
+  static void writeHeader(DataOutputStream out, int width, int height, long seed) 
+      throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(width);
+    out.writeInt(height);
+    out.writeLong(seed);
+  }
+
+  //EFFECT: writes a whole maze file for this grid, row by row
+  static void write(DataOutputStream out, MazeGrid grid, long seed) throws IOException {
+    writeHeader(out, grid.width, grid.height, seed);
+    byte[] row = new byte[rowBytes(grid.width)];
+    for (int y = 0; y < grid.height; y += 1) {
+      rowOf(grid, y, row);
+      out.write(row);
+    }
+  }
+
+  //EFFECT: writes this maze to a new file
+  static void save(File file, Maze maze) throws IOException {
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+    try {
+      maze.write(out);
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  //maps a maze file into memory, reading only its header
+  static MappedMaze map(File file) throws IOException {
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = in.getChannel();
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("maze file too big to map; read it with MazeReader");
+      }
+      return new MappedMaze(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  //loads the maze in this file, mapping it rather than reading it cell by cell. The
+  //rows are checked as they are copied, so a passage out of the grid, or more or fewer
+  //passages than a spanning tree has, is turned down at no extra cost. A loop that
+  //leaves a cell cut off keeps the count right; isPerfect finds those too, but with a
+  //second read and a union-find over every row, so it is left to callers that need it
+  static Maze load(File file) throws IOException {
+    MappedMaze mapped = map(file);
+    if ((long) mapped.width * mapped.height > Integer.MAX_VALUE) {
+      throw new IOException("maze file too big to load; read it with MazeReader");
+    }
+    SpanningTree tree = SpanningTree.of(mapped.grid());
+    if (tree.size() != mapped.width * mapped.height - 1) {
+      throw new IOException("maze file does not hold the passages of a spanning tree");
+    }
+    return new Maze(mapped.width, mapped.height, mapped.seed, tree);
+  }
+
+  //checks that the maze in this file is perfect with StreamingSolver.isPerfect, a row
+  //at a time
+  static boolean isPerfect(File file) throws IOException {
+    MazeReader maze = new MazeReader(new FileInputStream(file));
+    try {
+      return StreamingSolver.isPerfect(maze);
+    }
+    finally {
+      maze.close();
+    }
+  }
+
+  //checks that no passage of this row leaves the grid: none goes right from the last
+  //cell, and none goes down if it is the last row
+  static boolean inGrid(byte[] row, int width, boolean last) {
+    int x = width - 1;
+    if (((row[x >>> 2] >>> ((x & 3) << 1)) & MazeGrid.RIGHT) != 0) {
+      return false;
+    }
+    for (int k = 0; last && k < row.length; k += 1) {
+      if ((row[k] & 0xAA & cellMask(width, k)) != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  //EFFECT: throws if a header gives a maze with no cells
+  static void checkSize(int width, int height) throws IOException {
+    if (width <= 0 || height <= 0) {
+      throw new IOException("maze file has a bad size: " + width + "x" + height);
+    }
+  }
+
+  //EFFECT: copies the passage bits of row y of the grid into row, a byte (four cells)
+  //at a time: a row of the grid is a run of bits that may start anywhere in a long
+  static void rowOf(MazeGrid grid, int y, byte[] row) {
+    long start = 2L * y * grid.width;
+    for (int k = 0; k < row.length; k += 1) {
+      long at = start + 8L * k;
+      int word = (int) (at >>> 6);
+      int shift = (int) (at & 63);
+      long bits = grid.passages[word] >>> shift;
+      if (shift > 56 && word + 1 < grid.passages.length) {
+        bits |= grid.passages[word + 1] << (64 - shift);
+      }
+      row[k] = (byte) (bits & cellMask(grid.width, k));
+    }
+  }
+
+  //EFFECT: opens the passages of row y of the grid that are set in row, eight bytes
+  //(32 cells) at a time
+  static void setRow(MazeGrid grid, int y, byte[] row) {
+    long start = 2L * y * grid.width;
+    int rowBits = 2 * grid.width;
+    for (int k = 0; k < row.length; k += 8) {
+      long bits = 0;
+      for (int b = Math.min(row.length, k + 8) - 1; b >= k; b -= 1) {
+        bits = (bits << 8) | (row[b] & 0xFF);
+      }
+      int valid = rowBits - 8 * k;
+      if (valid < 64) {
+        bits &= (1L << valid) - 1;
+      }
+      long at = start + 8L * k;
+      int word = (int) (at >>> 6);
+      int shift = (int) (at & 63);
+      grid.passages[word] |= bits << shift;
+      if (shift != 0 && (bits >>> (64 - shift)) != 0) {
+        grid.passages[word + 1] |= bits >>> (64 - shift);
+      }
+    }
+  }
+
+  //gives the mask of the bits of byte k of a row that belong to cells of the row
+  static int cellMask(int width, int k) {
+    return (1 << (2 * Math.min(4, width - 4 * k))) - 1;
+  }
+}
+
+
+//a maze file mapped into memory. Only the header is read up front; passages are read
+//straight out of the mapping, or copied into a MazeGrid a row at a time by grid()
+class MappedMaze {
+  ByteBuffer buffer;
+  int width;
+  int height;
+  long seed;
+  int rowBytes;
+
+  MappedMaze(ByteBuffer buffer) throws IOException {
+    this.buffer = buffer;
+    if (buffer.capacity() < MazeFile.HEADER || buffer.getInt(0) != MazeFile.MAGIC) {
+      throw new IOException("not a maze file");
+    }
+    this.width = buffer.getInt(4);
+    this.height = buffer.getInt(8);
+    this.seed = buffer.getLong(12);
+    MazeFile.checkSize(this.width, this.height);
+    this.rowBytes = MazeFile.rowBytes(this.width);
+    if (buffer.capacity() < MazeFile.HEADER + (long) this.height * this.rowBytes) {
+      throw new IOException("maze file is cut short");
+    }
+  }
+
+  //gives the RIGHT and DOWN bits of the cell at x, y
+  public int passagesAt(int x, int y) {
+    byte b = this.buffer.get(MazeFile.HEADER + y * this.rowBytes + (x >>> 2));
+    return (b >>> ((x & 3) << 1)) & 3;
+  }
+
+  //gives a MazeGrid with the passages of this maze, copied over a row at a time;
+  //throws if a passage leaves the grid
+  public MazeGrid grid() throws IOException {
+    MazeGrid grid = new MazeGrid(this.width, this.height);
+    ByteBuffer rows = this.buffer.duplicate();
+    rows.position(MazeFile.HEADER);
+    byte[] row = new byte[this.rowBytes];
+    for (int y = 0; y < this.height; y += 1) {
+      rows.get(row);
+      if (!MazeFile.inGrid(row, this.width, y == this.height - 1)) {
+        throw new IOException("maze file has a passage out of the grid");
+      }
+      MazeFile.setRow(grid, y, row);
+    }
+    return grid;
+  }
+}
+
+
+//reads a maze file back one row at a time, so that a maze bigger than the heap can
+//be checked or solved holding only the row at hand
+class MazeReader {
+  DataInputStream in;
+  int width;
+  int height;
+  long seed;
+  byte[] row;
+  int rowsRead;
+
+  MazeReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    if (this.in.readInt() != MazeFile.MAGIC) {
+      throw new IOException("not a maze file");
+    }
+    this.width = this.in.readInt();
+    this.height = this.in.readInt();
+    this.seed = this.in.readLong();
+    MazeFile.checkSize(this.width, this.height);
+    this.row = new byte[MazeFile.rowBytes(this.width)];
+    this.rowsRead = 0;
+  }
+
+  //EFFECT: reads the next row into row; returns false once every row has been read
+  public boolean nextRow() throws IOException {
+    if (this.rowsRead == this.height) {
+      return false;
+    }
+    this.in.readFully(this.row);
+    this.rowsRead += 1;
+    return true;
+  }
+
+  //gives the RIGHT and DOWN bits of the cell at x in the last row read
+  public int passagesAt(int x) {
+    return MazeFile.passagesAt(this.row, x);
+  }
+
+  //EFFECT: reads the rows that are left into a MazeGrid
+  public MazeGrid readGrid() throws IOException {
+    MazeGrid grid = new MazeGrid(this.width, this.height);
+    while (this.nextRow()) {
+      MazeFile.setRow(grid, this.rowsRead - 1, this.row);
+    }
+    return grid;
+  }
+
+  public void close() throws IOException {
+    this.in.close();
+  }
+}
+
+
+//the sets the cells of one row belong to, for sweeps that go over a maze row by row.
+//Labels stay below width: a union-find joins them within the row, and on the way to
+//the next row each cell either carries on the set of the cell above or starts a new
+//one, after which the labels are renumbered from 0
+class RowSets {
+  int width;
+  int[] sets;
+  int[] parent;
+  int[] next;
+  int[] remap;
+
+  RowSets(int width) {
+    this.width = width;
+    this.sets = new int[width];
+    this.parent = new int[width];
+    this.next = new int[width];
+    this.remap = new int[2 * width];
+    for (int x = 0; x < width; x += 1) {
+      this.sets[x] = x;
+      this.parent[x] = x;
+    }
+  }
+
+  //gives the label of the set this cell of the row belongs to
+  public int setOf(int x) {
+    int label = this.sets[x];
+    while (this.parent[label] != label) {
+      this.parent[label] = this.parent[this.parent[label]];
+      label = this.parent[label];
+    }
+    return label;
+  }
+
+  //EFFECT: joins the sets of two cells of the row
+  //returns false if they were already in the same set
+  public boolean union(int x1, int x2) {
+    int a = this.setOf(x1);
+    int b = this.setOf(x2);
+    if (a == b) {
+      return false;
+    }
+    this.parent[b] = a;
+    return true;
+  }
+
+  //EFFECT: has the cell below x carry on the set of x, or start a set of its own
+  public void carry(int x, boolean down) {
+    this.next[x] = down ? this.setOf(x) : this.width + x;
+  }
+
+  //EFFECT: moves on to the next row, once carry has been called for every cell
+  public void nextRow() {
+    Arrays.fill(this.remap, -1);
+    int labels = 0;
+    for (int x = 0; x < this.width; x += 1) {
+      if (this.remap[this.next[x]] < 0) {
+        this.remap[this.next[x]] = labels;
+        labels += 1;
+      }
+      this.sets[x] = this.remap[this.next[x]];
+      this.parent[x] = x;
+    }
+  }
+}
+
+
+//makes a maze one row at a time with Eller's algorithm and writes each row out as
+//soon as it is finished, holding only the sets of the current row. Each row joins
+//neighbours in different sets at random, then sends at least one passage down from
+//every set; the last row joins whatever sets are left. The maze is perfect, like
+//Kruskal's, though with longer runs along the rows
+class EllerGenerator {
+  int width;
+  int height;
+  long seed;
+  SplittableRandom rand;
+  RowSets sets;
+  int[] left;
+  boolean[] wentDown;
+  byte[] row;
+
+  EllerGenerator(int width, int height, long seed) {
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+    this.rand = new SplittableRandom(seed);
+    this.sets = new RowSets(width);
+    this.left = new int[width];
+    this.wentDown = new boolean[width];
+    this.row = new byte[MazeFile.rowBytes(width)];
+  }
+
+  //EFFECT: writes the whole maze to the stream as a maze file
+  public void write(DataOutputStream out) throws IOException {
+    MazeFile.writeHeader(out, this.width, this.height, this.seed);
+    for (int y = 0; y < this.height; y += 1) {
+      this.makeRow(y == this.height - 1);
+      out.write(this.row);
+    }
+  }
+
+  //EFFECT: fills row with the passages of the next row
+  void makeRow(boolean last) {
+    Arrays.fill(this.row, (byte) 0);
+    for (int x = 0; x + 1 < this.width; x += 1) {
+      if ((last || this.rand.nextBoolean()) && this.sets.union(x, x + 1)) {
+        MazeFile.open(this.row, x, MazeGrid.RIGHT);
+      }
+    }
+    if (last) {
+      return;
+    }
+    Arrays.fill(this.left, 0);
+    Arrays.fill(this.wentDown, false);
+    for (int x = 0; x < this.width; x += 1) {
+      this.left[this.sets.setOf(x)] += 1;
+    }
+    for (int x = 0; x < this.width; x += 1) {
+      int set = this.sets.setOf(x);
+      this.left[set] -= 1;
+      boolean down = this.rand.nextBoolean() || (this.left[set] == 0 && !this.wentDown[set]);
+      if (down) {
+        MazeFile.open(this.row, x, MazeGrid.DOWN);
+        this.wentDown[set] = true;
+      }
+      this.sets.carry(x, down);
+    }
+    this.sets.nextRow();
+  }
+}
+
+
+//checks and solves a maze file as it is read, one row at a time, in memory
+//proportional to the width of the maze rather than to its size
+class StreamingSolver {
+
+  //checks that the maze is perfect: no passage leaves the grid, no passage closes a
+  //loop, and there are exactly cells - 1 passages, so every cell is connected
+  static boolean isPerfect(MazeReader maze) throws IOException {
+    int width = maze.width;
+    RowSets sets = new RowSets(width);
+    long passages = 0;
+    while (maze.nextRow()) {
+      boolean last = maze.rowsRead == maze.height;
+      for (int x = 0; x < width; x += 1) {
+        int bits = maze.passagesAt(x);
+        if ((bits & MazeGrid.RIGHT) != 0) {
+          if (x == width - 1 || !sets.union(x, x + 1)) {
+            return false;
+          }
+          passages += 1;
+        }
+      }
+      for (int x = 0; x < width; x += 1) {
+        boolean down = (maze.passagesAt(x) & MazeGrid.DOWN) != 0;
+        if (down && last) {
+          return false;
+        }
+        passages += down ? 1 : 0;
+        sets.carry(x, down);
+      }
+      sets.nextRow();
+    }
+    return passages == (long) width * maze.height - 1;
+  }
+
+  //gives the number of cells on the path from the top left to the bottom right corner
+  //of a perfect maze, or -1 if they are not connected. What has been read so far is
+  //kept as a forest whose only nodes are the cells of the last row, the start, and
+  //the cells where three or more of their paths branch; every other path is folded
+  //into an edge weighted with its length, so the forest never outgrows 3 * width nodes
+  static long pathLength(MazeReader maze) throws IOException {
+    PathForest forest = new PathForest(maze.width);
+    while (maze.nextRow()) {
+      forest.addRow(maze.row, maze.rowsRead == maze.height);
+    }
+    long distance = forest.distance(forest.width, forest.width - 1);
+    return distance < 0 ? -1 : distance + 1;
+  }
+}
+
+
+//the forest StreamingSolver.pathLength sweeps down a maze. Nodes 0 to width - 1 are
+//the cells of the last row added, node width is the start, and the nodes after it are
+//branching cells; the edges are weighted with the length of the path they stand for.
+//It is only a forest if the maze is perfect, so check the maze with isPerfect first
+class PathForest {
+  int width;
+  int rows;
+  int nodes;
+  int edges;
+  int[] from;
+  int[] to;
+  long[] weight;
+  int[] spareFrom;
+  int[] spareTo;
+  long[] spareWeight;
+  byte[] above;
+  boolean[] terminal;
+  int[] degree;
+  int[] first;
+  int[] incident;
+  boolean[] removed;
+  boolean[] cut;
+  int[] label;
+  int[] queue;
+
+  PathForest(int width) {
+    int maxNodes = 3 * width + 2;
+    int maxEdges = 4 * width + 2;
+    this.width = width;
+    this.rows = 0;
+    this.nodes = width + 1;
+    this.edges = 0;
+    this.from = new int[maxEdges];
+    this.to = new int[maxEdges];
+    this.weight = new long[maxEdges];
+    this.spareFrom = new int[maxEdges];
+    this.spareTo = new int[maxEdges];
+    this.spareWeight = new long[maxEdges];
+    this.above = new byte[MazeFile.rowBytes(width)];
+    this.terminal = new boolean[maxNodes];
+    this.degree = new int[maxNodes];
+    this.first = new int[maxNodes + 1];
+    this.incident = new int[2 * maxEdges];
+    this.removed = new boolean[maxEdges];
+    this.cut = new boolean[maxNodes];
+    this.label = new int[maxNodes];
+    this.queue = new int[maxNodes];
+  }
+
+  //EFFECT: adds the cells of the next row, joined to the row above by its DOWN bits
+  //and to each other by their RIGHT bits, then folds the forest back down. Only the
+  //start and the new row stay as nodes, or the start and the end for the last row
+  public void addRow(byte[] row, boolean last) {
+    int base = this.nodes;
+    if (this.rows == 0) {
+      this.addEdge(this.width, base, 0);
+    }
+    for (int x = 0; x < this.width; x += 1) {
+      if ((MazeFile.passagesAt(this.above, x) & MazeGrid.DOWN) != 0) {
+        this.addEdge(x, base + x, 1);
+      }
+      if ((MazeFile.passagesAt(row, x) & MazeGrid.RIGHT) != 0 && x + 1 < this.width) {
+        this.addEdge(base + x, base + x + 1, 1);
+      }
+    }
+    this.rows += 1;
+    this.nodes = base + this.width;
+    Arrays.fill(this.terminal, 0, this.nodes, false);
+    this.terminal[this.width] = true;
+    for (int x = last ? this.width - 1 : 0; x < this.width; x += 1) {
+      this.terminal[base + x] = true;
+    }
+    this.fold(base);
+    System.arraycopy(row, 0, this.above, 0, row.length);
+  }
+
+  //EFFECT: adds an edge of the given weight between two nodes
+  void addEdge(int a, int b, long w) {
+    this.from[this.edges] = a;
+    this.to[this.edges] = b;
+    this.weight[this.edges] = w;
+    this.edges += 1;
+  }
+
+  //EFFECT: drops every node that is not a terminal and leads to no terminal, folds
+  //paths through nodes that are not terminals into single edges, and renumbers the
+  //nodes that are left: the row that starts at base as 0 to width - 1, the start as
+  //width, and the branching cells after it
+  void fold(int base) {
+    int n = this.nodes;
+    Arrays.fill(this.degree, 0, n, 0);
+    Arrays.fill(this.first, 0, n + 1, 0);
+    for (int e = 0; e < this.edges; e += 1) {
+      this.first[this.from[e] + 1] += 1;
+      this.first[this.to[e] + 1] += 1;
+      this.removed[e] = false;
+    }
+    for (int v = 0; v < n; v += 1) {
+      this.first[v + 1] += this.first[v];
+    }
+    for (int e = 0; e < this.edges; e += 1) {
+      this.incident[this.first[this.from[e]] + this.degree[this.from[e]]] = e;
+      this.degree[this.from[e]] += 1;
+      this.incident[this.first[this.to[e]] + this.degree[this.to[e]]] = e;
+      this.degree[this.to[e]] += 1;
+    }
+
+    //prune the nodes that lead to no terminal, leaves first
+    int size = 0;
+    for (int v = 0; v < n; v += 1) {
+      this.cut[v] = false;
+      if (!this.terminal[v] && this.degree[v] <= 1) {
+        this.queue[size] = v;
+        size += 1;
+      }
+    }
+    for (int i = 0; i < size; i += 1) {
+      int v = this.queue[i];
+      this.cut[v] = true;
+      for (int k = this.first[v]; k < this.first[v + 1]; k += 1) {
+        int e = this.incident[k];
+        if (!this.removed[e]) {
+          this.removed[e] = true;
+          int u = this.from[e] == v ? this.to[e] : this.from[e];
+          this.degree[u] -= 1;
+          if (!this.terminal[u] && !this.cut[u] && this.degree[u] == 1) {
+            this.queue[size] = u;
+            size += 1;
+          }
+        }
+      }
+    }
+
+    //number the nodes that stay: terminals and branching cells
+    int branches = 0;
+    for (int v = 0; v < n; v += 1) {
+      if (this.terminal[v] && v >= base) {
+        this.label[v] = v - base;
+      }
+      else if (v == this.width) {
+        this.label[v] = this.width;
+      }
+      else if (!this.cut[v] && this.degree[v] >= 3) {
+        this.label[v] = this.width + 1 + branches;
+        branches += 1;
+      }
+      else {
+        this.label[v] = -1;
+      }
+    }
+
+    //walk from every node that stays along each path to the next one, and keep the
+    //path as one edge, from the end with the smaller number
+    int kept = 0;
+    int[] keptFrom = this.spareFrom;
+    int[] keptTo = this.spareTo;
+    long[] keptWeight = this.spareWeight;
+    for (int v = 0; v < n; v += 1) {
+      if (this.label[v] >= 0 && !this.cut[v]) {
+        for (int k = this.first[v]; k < this.first[v + 1]; k += 1) {
+          int e = this.incident[k];
+          if (!this.removed[e]) {
+            long length = this.weight[e];
+            int u = this.from[e] == v ? this.to[e] : this.from[e];
+            while (this.label[u] < 0) {
+              int onward = e;
+              for (int j = this.first[u]; j < this.first[u + 1]; j += 1) {
+                if (this.incident[j] != e && !this.removed[this.incident[j]]) {
+                  onward = this.incident[j];
+                }
+              }
+              e = onward;
+              length += this.weight[e];
+              u = this.from[e] == u ? this.to[e] : this.from[e];
+            }
+            if (this.label[v] < this.label[u]) {
+              keptFrom[kept] = this.label[v];
+              keptTo[kept] = this.label[u];
+              keptWeight[kept] = length;
+              kept += 1;
+            }
+          }
+        }
+      }
+    }
+    this.spareFrom = this.from;
+    this.spareTo = this.to;
+    this.spareWeight = this.weight;
+    this.from = keptFrom;
+    this.to = keptTo;
+    this.weight = keptWeight;
+    this.edges = kept;
+    this.nodes = this.width + 1 + branches;
+  }
+
+  //gives the weight of the edge between two nodes, or -1 if there is none
+  public long distance(int a, int b) {
+    for (int e = 0; e < this.edges; e += 1) {
+      if ((this.from[e] == a && this.to[e] == b) || (this.from[e] == b && this.to[e] == a)) {
+        return this.weight[e];
+      }
+    }
+    return -1;
+  }
+}
+
+
+//where a Graph reports how long its hot paths take and how much work they do.
+//Times are named after the step ("generate.kruskal", "findPath.bfs", "frame.makeScene")
+//and counts after what they count ("findPath.bfs.expanded", "frame.images")
+interface IMetrics {
+  //records that the named step took this many nanoseconds
+  void time(String name, long nanos);
+
+  //records this amount of the named count, once per step it was counted in
+  void count(String name, long amount);
+}
+
+//drops every measurement; what a Graph reports to unless told otherwise
+class NoMetrics implements IMetrics {
+  public void time(String name, long nanos) {
+    //nothing to keep
+  }
+
+  public void count(String name, long amount) {
+    //nothing to keep
+  }
+}
+
+//keeps, for every name, how many times it was recorded and the total and largest
+//amount, and prints them as a plain-text table. Safe to read from another thread
+//while a session records into it
+class TextMetrics implements IMetrics {
+  static final int SAMPLES = 0;
+  static final int TOTAL = 1;
+  static final int MAX = 2;
+
+  TreeMap<String, long[]> stats;
+  HashSet<String> timed;
+
+  TextMetrics() {
+    this.stats = new TreeMap<String, long[]>();
+    this.timed = new HashSet<String>();
+  }
+
+  public synchronized void time(String name, long nanos) {
+    this.timed.add(name);
+    this.add(name, nanos);
+  }
+
+  public synchronized void count(String name, long amount) {
+    this.add(name, amount);
+  }
+
+  //EFFECT: adds one sample of this amount to the named stats
+  void add(String name, long amount) {
+    long[] s = this.stats.get(name);
+    if (s == null) {
+      s = new long[3];
+      this.stats.put(name, s);
+    }
+    s[SAMPLES] += 1;
+    s[TOTAL] += amount;
+    s[MAX] = Math.max(s[MAX], amount);
+  }
+
+  //gives how many times this name was recorded
+  public synchronized long samples(String name) {
+    long[] s = this.stats.get(name);
+    return s == null ? 0 : s[SAMPLES];
+  }
+
+  //gives the total recorded under this name, in milliseconds if it is a time
+  public synchronized double total(String name) {
+    return this.scaled(name, TOTAL);
+  }
+
+  //gives the largest amount recorded under this name, in milliseconds if it is a time
+  public synchronized double max(String name) {
+    return this.scaled(name, MAX);
+  }
+
+  //gives the mean amount recorded under this name, in milliseconds if it is a time
+  public synchronized double mean(String name) {
+    long samples = this.samples(name);
+    return samples == 0 ? 0 : this.total(name) / samples;
+  }
+
+  //gives this stat of the name, turning nanoseconds into milliseconds
+  double scaled(String name, int stat) {
+    long[] s = this.stats.get(name);
+    if (s == null) {
+      return 0;
+    }
+    return this.timed.contains(name) ? s[stat] / 1e6 : s[stat];
+  }
+
+  //EFFECT: forgets every measurement
+  public synchronized void reset() {
+    this.stats.clear();
+    this.timed.clear();
+  }
+
+  //gives one line per name, in name order: the samples and the mean, largest and
+  //total amount, times in milliseconds
+  public synchronized String dump() {
+    StringBuilder out = new StringBuilder();
+    for (String name : this.stats.keySet()) {
+      out.append(String.format("%-28s %8d  mean %12.3f  max %12.3f  total %14.3f%s%n", 
+          name, this.samples(name), this.mean(name), this.max(name), this.total(name), 
+          this.timed.contains(name) ? " ms" : ""));
+    }
+    return out.toString();
+  }
+}
+
+//publishes the measurements of a TextMetrics as a JMX MBean, so jconsole or any JMX
+//client can watch a running session. Every recorded name gives the attributes
+//name.samples, name.mean, name.max and name.total, and the dump and reset
+//operations do what the TextMetrics methods do
+class JmxMetrics extends TextMetrics implements DynamicMBean {
+  static final String NAME = "maze:type=Metrics";
+  static final String[] FIELDS = {"samples", "mean", "max", "total"};
+
+  //EFFECT: registers these metrics with the platform MBean server under NAME
+  public void register() throws JMException {
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(NAME));
+  }
+
+  //EFFECT: removes these metrics from the platform MBean server
+  public void unregister() throws JMException {
+    ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(NAME));
+  }
+
+  //describes one attribute for every field of every name recorded so far
+  public synchronized MBeanInfo getMBeanInfo() {
+    ArrayList<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+    for (String name : this.stats.keySet()) {
+      for (String field : FIELDS) {
+        attributes.add(new MBeanAttributeInfo(name + "." + field, 
+            field.equals("samples") ? "long" : "double", 
+            field + " of " + name + (this.timed.contains(name) ? " in ms" : ""), 
+            true, false, false));
+      }
+    }
+    MBeanOperationInfo[] operations = {
+      new MBeanOperationInfo("dump", "every measurement as a plain-text table", null, 
+          "java.lang.String", MBeanOperationInfo.INFO),
+      new MBeanOperationInfo("reset", "forgets every measurement", null, 
+          "void", MBeanOperationInfo.ACTION)
+    };
+    return new MBeanInfo(JmxMetrics.class.getName(), "maze hot path metrics", 
+        attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, operations, null);
+  }
+
+  //gives the attribute name.field
+  public synchronized Object getAttribute(String attribute) 
+      throws AttributeNotFoundException {
+    int dot = attribute.lastIndexOf('.');
+    String name = attribute.substring(0, Math.max(dot, 0));
+    String field = attribute.substring(dot + 1);
+    if (!this.stats.containsKey(name)) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    else if (field.equals("samples")) {
+      return this.samples(name);
+    }
+    else if (field.equals("mean")) {
+      return this.mean(name);
+    }
+    else if (field.equals("max")) {
+      return this.max(name);
+    }
+    else if (field.equals("total")) {
+      return this.total(name);
+    }
+    throw new AttributeNotFoundException(attribute);
+  }
+
+  //gives the attributes that exist among these
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList result = new AttributeList();
+    for (String attribute : attributes) {
+      try {
+        result.add(new Attribute(attribute, this.getAttribute(attribute)));
+      }
+      catch (AttributeNotFoundException e) {
+        //left out, as the MBeanServer contract asks
+      }
+    }
+    return result;
+  }
+
+  //every attribute is read only
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("read only: " + attribute.getName());
+  }
+
+  //every attribute is read only, so none is set
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  //runs the dump or reset operation
+  public Object invoke(String action, Object[] params, String[] signature) 
+      throws ReflectionException {
+    if (action.equals("dump")) {
+      return this.dump();
+    }
+    else if (action.equals("reset")) {
+      this.reset();
+      return null;
+    }
+    throw new ReflectionException(new NoSuchMethodException(action));
+  }
+}
+
+
+//a persistent picture of the maze that is repainted only where something changed:
+//torn down walls, newly revealed vertices, path vertices and the player's old and new
+//cell. javalib draws it through a FromFileImage whose file name is registered with
+//the live BufferedImage instead of a file, so every frame shows the latest pixels.
+//That registry, ImageMaker.loadedImages, is javalib's internal cache of decoded image
+//files rather than part of its API, and it is static: a raster stays in it until
+//release, so whatever replaces or drops a raster has to release it first.
+//A raster shows the graph's own search, the one replay it is pinned to, or a search
+//racing on another thread as far as it has got
+class MazeRaster {
+  static final byte BLANK = 0;
+  static final byte SEEN = 1;
+  static final byte PATH = 2;
+  //the most cells of a racing search one frame paints; the rest wait for later frames,
+  //so a search that is far ahead never makes a frame late
+  static final int RACE_CELLS_PER_FRAME = 4096;
+  static int rasters = 0;
+
+  Graph graph;
+  SearchReplay pinned;
+  MazeRacer racer;
+  String label;
+  WorldImage seen;
+  int cell;
+  int width;
+  int height;
+  BufferedImage image;
+  Graphics2D pen;
+  String name;
+  WorldImage view;
+  byte[] shade;
+  boolean stale;
+  int tornPainted;
+  SearchReplay replayPainted;
+  int revealCursor;
+  List<Vertex> visitedPainted;
+  int visitedCursor;
+  List<Vertex> pathPainted;
+  int pathCursor;
+  int playerCell;
+  int repainted;
+  int placed;
+
+  MazeRaster(Graph graph) {
+    this(graph, null, Graph.CELL_SIZE);
+  }
+
+  //a raster of cells this many pixels square that replays the pinned search, or the
+  //graph's own search if it is null
+  MazeRaster(Graph graph, SearchReplay pinned, int cell) {
+    this.graph = graph;
+    this.pinned = pinned;
+    this.racer = null;
+    this.label = "";
+    this.seen = Sprites.get(Sprites.SEEN, cell);
+    this.cell = cell;
+    this.width = graph.width;
+    this.height = graph.height;
+    this.image = new BufferedImage(this.width * cell, this.height * cell,
+        BufferedImage.TYPE_INT_ARGB);
+    this.pen = this.image.createGraphics();
+    this.shade = new byte[this.width * this.height];
+    rasters += 1;
+    this.name = "maze-raster-" + rasters + ".png";
+    ImageMaker.loadedImages.put(MazeRaster.key(this.name), this.image);
+    this.view = new FromFileImage(this.name);
+    this.stale = true;
+  }
+
+  //a raster of cells this many pixels square that shows how far this racer has got,
+  //its cells seen in the given color
+  MazeRaster(Graph graph, MazeRacer racer, int cell, Color color) {
+    this(graph, null, cell);
+    this.racer = racer;
+    this.seen = new RectangleImage(cell, cell, OutlineMode.SOLID, color);
+  }
+
+  //gives the key javalib looks an image file up under
+  static String key(String fileName) {
+    try {
+      return new File(fileName).getCanonicalPath();
+    }
+    catch (IOException e) {
+      return new File(fileName).getAbsolutePath();
+    }
+  }
+
+  //EFFECT: stops javalib from holding on to this raster's pixels
+  public void release() {
+    ImageMaker.loadedImages.remove(MazeRaster.key(this.name));
+    this.pen.dispose();
+  }
+
+  //EFFECT: has the next update paint the whole maze again
+  public void invalidate() {
+    this.stale = true;
+  }
+
+  //gives the search this raster replays, if it replays one
+  public SearchReplay replay() {
+    if (this.pinned != null || this.racer != null) {
+      return this.pinned;
+    }
+    return this.graph.replay;
+  }
+
+  //gives the line shown over this raster when it is a lane
+  public String caption() {
+    return this.racer == null ? this.label : this.racer.caption();
+  }
+
+  //EFFECT: brings the picture up to date with the graph, painting only what changed
+  //since the last update; gives the picture
+  public WorldImage update() {
+    Graph g = this.graph;
+    this.repainted = 0;
+    this.placed = 0;
+    if (this.stale) {
+      this.repaintAll();
+    }
+    //the walls torn down since the last frame
+    for (; this.tornPainted < g.teardown; this.tornPainted += 1) {
+      int id = g.tree.edgeAt(this.tornPainted);
+      int cell = g.grid.edgeCell(id);
+      this.paintCell(cell);
+      this.paintCell(g.grid.edgeDir(id) == MazeGrid.RIGHT ? cell + 1 : cell + this.width);
+    }
+    //the vertices the search has revealed by now: the replay lists them in the order
+    //they are revealed, so the cursor stops at the first one still to come
+    SearchReplay replay = this.replay();
+    if (replay != this.replayPainted) {
+      this.replayPainted = replay;
+      this.revealCursor = 0;
+    }
+    for (; replay != null && this.revealCursor < replay.size() 
+        && replay.revealAt[this.revealCursor] <= g.time; this.revealCursor += 1) {
+      this.see(replay.order[this.revealCursor]);
+    }
+    //the cells a racing search has expanded by now, as far as its thread has published
+    if (this.racer != null) {
+      int expanded = Math.min(this.racer.progress.get(), 
+          this.revealCursor + RACE_CELLS_PER_FRAME);
+      for (; this.revealCursor < expanded; this.revealCursor += 1) {
+        this.see(this.racer.solver.order[this.revealCursor]);
+      }
+    }
+    //the vertices the player walked through, and any visited outside the replay
+    if (this.pinned == null && this.racer == null) {
+      if (this.visitedPainted != g.visited) {
+        this.visitedPainted = g.visited;
+        this.visitedCursor = 0;
+      }
+      for (; this.visitedCursor < g.visited.size(); this.visitedCursor += 1) {
+        if (!g.replayed(this.visitedCursor)) {
+          this.see(g.visited.get(this.visitedCursor).name);
+        }
+      }
+    }
+    //the path, once the search has reached the end
+    if (this.racer != null) {
+      SearchReplay done = this.racer.result.get();
+      for (; done != null && this.revealCursor == done.size() 
+          && this.pathCursor < done.path.length; this.pathCursor += 1) {
+        this.shade[done.path[this.pathCursor]] = PATH;
+        this.paintCell(done.path[this.pathCursor]);
+      }
+    }
+    else if (this.pinned != null) {
+      for (; this.pinned.solvedBy(g.time) && this.pathCursor < this.pinned.path.length; 
+          this.pathCursor += 1) {
+        this.shade[this.pinned.path[this.pathCursor]] = PATH;
+        this.paintCell(this.pinned.path[this.pathCursor]);
+      }
+    }
+    else if (g.searchSolved() || g.playerSolved()) {
+      if (this.pathPainted != g.searchPath) {
+        this.pathPainted = g.searchPath;
+        this.pathCursor = 0;
+      }
+      for (; this.pathCursor < g.searchPath.size(); this.pathCursor += 1) {
+        Vertex v = g.searchPath.get(this.pathCursor);
+        this.shade[v.name] = PATH;
+        this.paintCell(v.name);
+      }
+    }
+    //the player's old and new cell
+    int cell = g.grid.cellAt(g.player.x, g.player.y);
+    if (cell != this.playerCell) {
+      int old = this.playerCell;
+      this.playerCell = cell;
+      this.paintCell(old);
+      this.paintCell(cell);
+    }
+    return this.view;
+  }
+
+  //EFFECT: shows this cell as seen, unless it already is
+  void see(int cell) {
+    if (this.shade[cell] == BLANK) {
+      this.shade[cell] = SEEN;
+      this.paintCell(cell);
+    }
+  }
+
+  //EFFECT: paints every cell and wall from scratch
+  void repaintAll() {
+    this.stale = false;
+    this.pen.setColor(Color.GRAY);
+    this.pen.fillRect(0, 0, this.image.getWidth(), this.image.getHeight());
+    Arrays.fill(this.shade, BLANK);
+    for (int id = 0; id < this.graph.grid.edges(); id += 1) {
+      this.paintWall(id);
+    }
+    this.tornPainted = this.graph.teardown;
+    this.rewind();
+    this.playerCell = this.graph.grid.cellAt(this.graph.player.x, this.graph.player.y);
+    this.paintCell(this.playerCell);
+  }
+
+  //EFFECT: paints the whole maze by copying the pixels of a raster of the same maze and
+  //cell size that was just painted from scratch, which is far cheaper than painting it
+  void repaintLike(MazeRaster fresh) {
+    this.stale = false;
+    this.pen.drawImage(fresh.image, 0, 0, null);
+    System.arraycopy(fresh.shade, 0, this.shade, 0, this.shade.length);
+    this.tornPainted = fresh.tornPainted;
+    this.rewind();
+    this.playerCell = fresh.playerCell;
+  }
+
+  //EFFECT: starts every search and path cursor over
+  void rewind() {
+    this.replayPainted = null;
+    this.revealCursor = 0;
+    this.visitedPainted = null;
+    this.visitedCursor = 0;
+    this.pathPainted = null;
+    this.pathCursor = 0;
+  }
+
+  //EFFECT: paints this cell, its walls and the player if it stands on it
+  void paintCell(int cell) {
+    Graph g = this.graph;
+    int x = cell % this.width;
+    int y = cell / this.width;
+    this.pen.setColor(Color.GRAY);
+    this.pen.fillRect(x * this.cell, y * this.cell, this.cell, this.cell);
+    if (this.shade[cell] == SEEN) {
+      this.place(this.seen, x * this.cell + (this.cell / 2), y * this.cell + (this.cell / 2));
+    }
+    else if (this.shade[cell] == PATH) {
+      this.place(Sprites.get(Sprites.PATH, this.cell), x * this.cell + (this.cell / 2), 
+          y * this.cell + (this.cell / 2));
+    }
+    if (cell >= this.width) {
+      this.paintWall(this.graph.grid.edgeId(cell - this.width, MazeGrid.DOWN));
+    }
+    if (x != 0) {
+      this.paintWall(this.graph.grid.edgeId(cell - 1, MazeGrid.RIGHT));
+    }
+    if (x != this.width - 1) {
+      this.paintWall(this.graph.grid.edgeId(cell, MazeGrid.RIGHT));
+    }
+    if (cell < this.width * (this.height - 1)) {
+      this.paintWall(this.graph.grid.edgeId(cell, MazeGrid.DOWN));
+    }
+    if (cell == this.playerCell) {
+      this.place(Sprites.get(Sprites.PLAYER, this.cell), 
+          g.player.x * this.cell + (this.cell / 2), g.player.y * this.cell + (this.cell / 2));
+    }
+    this.repainted += 1;
+  }
+
+  //EFFECT: paints the edge with this id as a wall if it is still standing
+  void paintWall(int id) {
+    MazeGrid opened = this.graph.opened;
+    int from = opened.edgeCell(id);
+    if (!opened.isOpen(from, opened.edgeDir(id))) {
+      int x = from % this.width;
+      int y = from / this.width;
+      if (opened.edgeDir(id) == MazeGrid.RIGHT) {
+        this.place(Sprites.get(Sprites.SIDE_WALL, this.cell), x * this.cell + this.cell,
+            y * this.cell + this.cell / 2);
+      }
+      else {
+        this.place(Sprites.get(Sprites.FLOOR_WALL, this.cell), x * this.cell + this.cell / 2,
+            y * this.cell + this.cell);
+      }
+    }
+  }
+
+  //EFFECT: draws the image centered on the given pixel
+  void place(WorldImage img, int x, int y) {
+    this.pen.translate(x, y);
+    img.draw(this.pen);
+    this.pen.translate(-x, -y);
+    this.placed += 1;
+  }
+}
+
+
+//turns the real time between javalib's ticks into a whole number of fixed steps, so
+//the timer and the animations keep to real time whatever the tick rate, and a late
+//tick catches up instead of slowing everything down. What is left over from a step
+//carries over to the next tick; a pause longer than maxSteps steps is skipped
+class FixedTimestep {
+  long stepNanos;
+  int maxSteps;
+  boolean started;
+  long last;
+  long lag;
+
+  FixedTimestep(long stepNanos, int maxSteps) {
+    this.stepNanos = stepNanos;
+    this.maxSteps = maxSteps;
+    this.started = false;
+  }
+
+  //EFFECT: forgets the time since the last tick, so the next tick starts counting afresh
+  public void restart() {
+    this.started = false;
+    this.lag = 0;
+  }
+
+  //gives how many steps are due at this System.nanoTime; the first tick after a
+  //restart only starts the count
+  public int advance(long now) {
+    if (!this.started) {
+      this.started = true;
+      this.last = now;
+      return 0;
+    }
+    this.lag += Math.max(0, now - this.last);
+    this.last = now;
+    if (this.lag >= this.maxSteps * this.stepNanos) {
+      this.lag %= this.stepNanos;
+      return this.maxSteps;
+    }
+    int steps = (int) (this.lag / this.stepNanos);
+    this.lag -= steps * this.stepNanos;
+    return steps;
+  }
+}
+
+
+class Graph extends World {
+  //the object view of the maze: null until something that takes or gives vertices or
+  //edges asks for it through buildObjects. Building the maze, its animation and its
+  //frames run on the grid alone
+  ArrayList<ArrayList<Vertex>> board;
+  ArrayList<Edge> edges;
+  ArrayList<Edge> sortedEdges;
+  ArrayList<Edge> allEdges;
+  List<Edge> mst;
+  SpanningTree tree;
+  MazeGrid grid;
+  PassageIndex passages;
+  MazeSolver solver;
+  ArrayList<Vertex> solution;
+  MazeGrid opened;
+  MazeRaster raster;
+  SearchReplay replay;
+  int replayStart;
+  ArrayList<MazeRaster> lanes;
+  MazeRace race;
+  ArrayList<Vertex> visited;
+  ArrayList<Vertex> searchPath;
+
+  Player player;
+  int width;
+  int height;
+
+  int time;
+  int seconds;
+  int animationTime;
+  int teardown;
+  int wallsPerTick;
+  long seed;
+  FixedTimestep clock;
+
+  //Defines an int constant
+  static final int CELL_SIZE = 10;
+  //the most steps the construction animation takes, however large the maze
+  static final int BUILD_TICKS = 600;
+  //how many steps the maze advances per second of real time
+  static final int STEPS_PER_SECOND = 60;
+  //the most steps one tick catches up on; a longer pause is skipped, not replayed
+  static final int MAX_CATCH_UP = 30;
+  //the searches "c" replays side by side, one in each quarter of the window
+  static final String[] COMPARED = {"bfs", "dfs", "astar", "bidirectional"};
+  //the colors "v" draws the cells each of them has seen in, in the same order
+  static final Color[] RACE_COLORS = {new Color(51, 153, 255), new Color(255, 153, 0), 
+    new Color(0, 170, 85), new Color(204, 51, 204)};
+  //where every Graph reports the timings of generation, solving and frames; set it to a
+  //TextMetrics or a registered JmxMetrics to collect them
+  static IMetrics metrics = new NoMetrics();
+
+
+  //constructor: makes a maze from a fresh random seed
+  Graph(int width, int height) {
+    this(width, height, new SplittableRandom().nextLong());
+  }
+
+  //gives the maze of this seed; the same seed always gives the same maze. This is a
+  //factory rather than a public constructor because new Graph(w, h, 42) would quietly
+  //pick the testing constructor's int diff instead
+  static Graph seeded(int width, int height, long seed) {
+    return new Graph(width, height, seed);
+  }
+
+  //makes the maze of this seed; reached through seeded
+  private Graph(int width, int height, long seed) {
+    this.width = width;
+    this.height = height;
+    this.seed = seed;
+    this.player = new Player(0, 0);
+    this.board = null;
+    this.generate();
+    this.start();
+  }
+
+  //plays a maze made or loaded elsewhere, such as one read with MazeFile.load; its
+  //walls come down in the order its tree lists its edges
+  Graph(Maze maze) {
+    this.width = maze.width;
+    this.height = maze.height;
+    this.seed = maze.seed;
+    this.player = new Player(0, 0);
+    this.board = null;
+    this.build(maze.tree);
+    this.start();
+  }
+
+  //secondary constructor for testing removeEdges
+  //diff parameter exists to differentiate between constructors
+  Graph(int width, int height, int diff) {
+    this.width = width;
+    this.height = height;
+    this.seed = new SplittableRandom().nextLong();
+    this.player = new Player(0, 0);
+    this.board = null;
+    this.fixConnections();
+    this.allEdges = new ArrayList<Edge>(this.getSortedEdges());
+    this.tree = this.kruskalTree();
+    this.mst = this.edgesOf(this.tree);
+    this.grid = this.tree.grid;
+    this.passages = new PassageIndex(this.grid);
+    this.solver = null;
+    this.solution = null;
+    this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
+    this.visited = new ArrayList<Vertex>();
+    this.time = 0;
+    this.clock = new FixedTimestep(1000000000L / STEPS_PER_SECOND, MAX_CATCH_UP);
+    this.replay = null;
+    this.lanes = new ArrayList<MazeRaster>();
+    this.race = null;
+  }
+
+
+  //EFFECT: sets up the construction animation and the search state for a new maze
+  void start() {
+    this.wallsPerTick = Graph.defaultWallsPerTick(this.tree.size());
+    this.teardown = 0;
+    this.opened = new MazeGrid(this.width, this.height);
+    this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
+    this.visited = new ArrayList<Vertex>();
+    this.time = 0;
+    this.seconds = 0;
+    this.animationTime = 0;
+    this.clock = new FixedTimestep(1000000000L / STEPS_PER_SECOND, MAX_CATCH_UP);
+    this.replay = null;
+    this.lanes = new ArrayList<MazeRaster>();
+    this.race = null;
+  }
+
+
+  //draws the world scene
+  public WorldScene makeScene() {
+    long begin = System.nanoTime();
+    int images = 0;
+    WorldScene scene = new WorldScene((this.width) * CELL_SIZE, (this.height) * CELL_SIZE);
+
+    //sets the search path to the optimal path if the player solves the maze
+    if (this.playerSolved()) {
+      this.drawPath();
+    }
+    //repaints what changed since the last frame: the torn down walls, the vertices
+    //the algorithm has seen, the path that solves the maze and the player
+    int placed = 0;
+    if (this.lanes.isEmpty()) {
+      scene.placeImageXY(this.raster().update(), width * CELL_SIZE / 2, 
+          height * CELL_SIZE / 2);
+      images += 1;
+      placed = this.raster.placed;
+    }
+    //or the compared searches side by side, each at half size in a quarter of the window
+    for (int i = 0; i < this.lanes.size(); i += 1) {
+      MazeRaster lane = this.lanes.get(i);
+      int x = (i % 2) * width * CELL_SIZE / 2;
+      int y = (i / 2) * height * CELL_SIZE / 2;
+      scene.placeImageXY(lane.update(), x + width * CELL_SIZE / 4, y + height * CELL_SIZE / 4);
+      scene.placeImageXY(new TextImage(lane.caption(), 12, Color.RED), 
+          x + width * CELL_SIZE / 4, y + 8);
+      images += 2;
+      placed += lane.placed;
+    }
+
+    //extra feature: keeps a timer starting at the time when the maze has been constructed.
+    if (this.constructed()) {
+      scene.placeImageXY(new TextImage("Time: " + (this.seconds) + "." 
+          + (this.time % STEPS_PER_SECOND), 
+          15, Color.RED), 
+          (this.width - (this.width / 4)) * CELL_SIZE, (this.height / 6) * CELL_SIZE); 
+      images += 1;
+    }
+    Graph.metrics.time("frame.makeScene", System.nanoTime() - begin);
+    Graph.metrics.count("frame.images", images + placed);
+    return scene;
+  }
+
+  //on tick method: advances the maze by as many steps as the real time since the last
+  //tick is worth, however often javalib ticks
+  public void onTick() {
+    int steps = this.clock.advance(System.nanoTime());
+    for (int i = 0; i < steps; i += 1) {
+      this.step();
+    }
+  }
+
+  //EFFECT: advances the maze by one step of 1 / STEPS_PER_SECOND seconds: the timer,
+  //the construction animation and, through time, the search animation
+  public void step() {
+    time += 1;
+    if ((time % STEPS_PER_SECOND) == 0 && this.constructed()) {
+      seconds ++;
+    }
+    //Bell : tears down the walls, a batch of them per step
+    for (int i = 0; i < this.wallsPerTick && !this.constructed(); i += 1) {
+      this.tearDownNext();
+    }
+  }
+
+  //EFFECT: tears down the next wall of the tree
+  public void tearDownNext() {
+    this.opened.openEdge(this.tree.edgeAt(this.teardown));
+    this.teardown += 1;
+  }
+
+  //EFFECT: skips the rest of the construction animation
+  public void finishConstruction() {
+    while (!this.constructed()) {
+      this.tearDownNext();
+    }
+    if (this.raster != null) {
+      this.raster.invalidate();
+    }
+  }
+
+  //gives how many walls to tear down per tick so that the animation of a maze with
+  //this many tree edges takes at most BUILD_TICKS steps
+  static int defaultWallsPerTick(int treeSize) {
+    return Math.max(1, (treeSize + BUILD_TICKS - 1) / BUILD_TICKS);
+  }
+
+  //gives the picture of this maze, making it on first use
+  public MazeRaster raster() {
+    if (this.raster == null) {
+      this.raster = new MazeRaster(this);
+    }
+    return this.raster;
+  }
+
+  //checks if the construction animation has torn down every wall of the tree
+  public boolean constructed() {
+    return this.teardown == this.tree.size();
+  }
+
+  //draws optimal path when player solves the maze
+  public void drawPath() {
+    this.searchPath = this.solution();
+  }
+
+  //gives the optimal path, from the end back to the start, in the form of searchPath
+  //solved once per maze and shared, so it must not be modified
+  public ArrayList<Vertex> solution() {
+    if (this.solution == null) {
+      int end = this.grid.cells() - 1;
+      MazeSolver engine = this.solver();
+      engine.solve(0, end, engine.stack());
+      this.solution = new ArrayList<Vertex>(engine.pathLength + 1);
+      this.solution.add(new Vertex(0, 0, 0));
+      for (int i = 0; i < engine.pathLength; i += 1) {
+        this.solution.add(this.vertexAt(engine.path[i]));
+      }
+    }
+    return this.solution;
+  }
+
+  //updates the world on every tick
+  public void onKeyEvent(String ke) {
+    this.updatePath(ke);
+    int cell = this.grid.cellAt(player.x, player.y);
+    if (this.passages.canMove(cell, PassageIndex.direction(ke))) {
+      player.movePlayer(ke);
+    }
+    else if (ke.equals("b")) {
+      this.restartSearch();
+      this.findPathBFS(this.vertexAt(0), this.vertexAt(this.grid.cells() - 1));
+    }
+    else if (ke.equals("d")) {
+      this.restartSearch();
+      this.findPathDFS(this.vertexAt(0), this.vertexAt(this.grid.cells() - 1));
+    }
+    else if (ke.equals("a")) {
+      this.restartSearch();
+      this.findPathAStar(this.vertexAt(0), this.vertexAt(this.grid.cells() - 1));
+    }
+    else if (ke.equals("m")) {
+      this.restartSearch();
+      this.findPathBidirectional(this.vertexAt(0), this.vertexAt(this.grid.cells() - 1));
+    }
+    else if (ke.equals("r")) {
+      long begin = System.nanoTime();
+      seconds = 0;
+      Graph g = Graph.seeded(this.width, this.height, this.seed + 1);
+      this.resetFields(g);
+      Graph.metrics.time("reset", System.nanoTime() - begin);
+    }
+    else if (ke.equals("s")) {
+      this.finishConstruction();
+    }
+    else if (ke.equals("c")) {
+      this.restartSearch();
+      this.compareSearches();
+    }
+    else if (ke.equals("v")) {
+      this.restartSearch();
+      this.startRace();
+    }
+  }
+
+  //EFFECT: runs every search in COMPARED from the start to the end and sets up a
+  //half-size raster for each, so that they are replayed side by side by the same clock
+  public void compareSearches() {
+    this.dropLanes();
+    int end = this.grid.cells() - 1;
+    for (String name : COMPARED) {
+      long begin = System.nanoTime();
+      this.solver().solve(name, 0, end);
+      this.searched("findPath." + name, begin, this.solver.visitedCount);
+      MazeRaster lane = new MazeRaster(this, SearchReplay.of(this.solver, 0, end), 
+          Math.max(1, CELL_SIZE / 2));
+      lane.label = name + ": " + lane.pinned.size();
+      this.lanes.add(lane);
+    }
+    this.paintLanes();
+  }
+
+  //EFFECT: races every search in COMPARED from the start to the end, each on a thread
+  //of its own, and sets up a half-size raster for each that shows the cells it has
+  //seen in its own color as it goes; returns once they are painted, without waiting for
+  //any of the searches
+  public void startRace() {
+    this.dropLanes();
+    this.race = new MazeRace(this.passages, COMPARED, 0, this.grid.cells() - 1);
+    for (int i = 0; i < COMPARED.length; i += 1) {
+      this.lanes.add(new MazeRaster(this, this.race.racers.get(i), 
+          Math.max(1, CELL_SIZE / 2), RACE_COLORS[i]));
+    }
+    this.paintLanes();
+    this.race.start();
+  }
+
+  //EFFECT: paints the first lane from scratch and copies it into the others, which
+  //all start out as the same picture
+  void paintLanes() {
+    MazeRaster first = this.lanes.get(0);
+    first.repaintAll();
+    for (int i = 1; i < this.lanes.size(); i += 1) {
+      this.lanes.get(i).repaintLike(first);
+    }
+  }
+
+  //EFFECT: stops replaying the compared searches, and stops the race if one is running
+  public void dropLanes() {
+    if (this.race != null) {
+      this.race.close();
+      this.race = null;
+    }
+    for (MazeRaster lane : this.lanes) {
+      lane.release();
+    }
+    this.lanes = new ArrayList<MazeRaster>();
+  }
+
+  //EFFECT: releases this maze's rasters, lanes included, and stops its race; it makes
+  //a fresh raster if it is drawn again
+  public void close() {
+    this.dropLanes();
+    if (this.raster != null) {
+      this.raster.release();
+      this.raster = null;
+    }
+  }
+
+  //EFFECT: clears the timer, the visited vertices and the path before a new search
+  public void restartSearch() {
+    seconds = 0;
+    this.time = 0;
+    this.clock.restart();
+    this.replay = null;
+    this.dropLanes();
+    this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
+    this.visited = new ArrayList<Vertex>();
+    if (this.raster != null) {
+      this.raster.invalidate();
+    }
+  }
+
+  //resets the fields on a key event: takes over the maze g generated
+  //and restarts the construction animation and the timer on it
+  public void resetFields(Graph g) {
+    this.width = g.width;
+    this.height = g.height;
+    this.seed = g.seed;
+    this.player = g.player;
+    this.board = g.board;
+    this.edges = g.edges;
+    this.sortedEdges = g.sortedEdges;
+    this.allEdges = g.allEdges;
+    this.mst = g.mst;
+    this.tree = g.tree;
+    this.grid = g.grid;
+    this.passages = g.passages;
+    this.solver = g.solver;
+    this.solution = null;
+    if (this.raster != null
+        && (this.raster.width != this.width || this.raster.height != this.height)) {
+      this.raster.release();
+      this.raster = null;
+    }
+    else if (this.raster != null) {
+      this.raster.invalidate();
+    }
+    this.teardown = 0;
+    this.opened = new MazeGrid(this.width, this.height);
+    this.searchPath = new ArrayList<Vertex>(Arrays.asList(new Vertex(0, 0, 0)));
+    this.visited = new ArrayList<Vertex>();
+    this.time = 0;
+    this.clock.restart();
+    this.replay = null;
+    this.dropLanes();
+    //g is done with once it is taken over, so the rasters it made go too
+    g.close();
+  }
+
+  //updates the path that the player has visited
+  public void updatePath(String ke) {
+    int cell = this.grid.cellAt(player.x, player.y);
+    int dir = PassageIndex.direction(ke);
+    if (this.passages.canMove(cell, dir)) {
+      int next = this.passages.neighbor(cell, dir);
+      visited.add(this.vertexAt(next));
+    }
+  }
+
+
+  //world end method
+  public WorldEnd worldEnds() {
+    if (this.playerSolved()) {
+      return new WorldEnd(true, this.winScene());
+    }
+    else if (this.searchSolved() && this.searchPath.size() > 1) {
+      return new WorldEnd(true, this.solveScene());
+    }
+    else {
+      return new WorldEnd(false, this.makeScene());
+    }
+  }
+
+  //check if the player has solved the maze
+  public boolean playerSolved() {
+    return this.player.x == this.width - 1 && this.player.y == this.height - 1;
+  }
+
+  //checks if the player has almost solved the maze
+  public boolean almostSolved() {
+    return Math.abs(this.player.x - (this.width - 1)) <= 1
+        && Math.abs(this.player.y - (this.height - 1)) <= 1;
+  }
+
+  //Image displayed when player wins
+  public WorldScene winScene() {
+    WorldScene scene = this.makeScene();
+    scene.placeImageXY(new AboveImage(new TextImage("GAME OVER. YOU SOLVED THE MAZE!", 20, 
+        new Color(51, 255, 255)), 
+        //whistle: counts the number of wrong moves
+        new TextImage("WRONG MOVES: " + (this.visited.size() - this.searchPath.size()), 
+            20,  new Color(51, 255, 255))), (this.width / 2) * CELL_SIZE,
+        (this.height / 2) * CELL_SIZE);
+    return scene;
+  }
+
+  //Image displayed when player wins
+  public WorldScene solveScene() {
+    WorldScene scene = this.makeScene();
+    scene.placeImageXY(new AboveImage(new TextImage("THE MAZE HAS BEEN SOLVED!", 20, 
+        new Color(51, 255, 255)), 
+        //whistle: counts the number of wrong moves
+        new TextImage("WRONG MOVES: " + (this.visited.size() - this.searchPath.size()), 
+            20,  new Color(51, 255, 255)),
+        //compares the search algorithms
+        new TextImage("NODES EXPANDED: " + this.visited.size(), 
+            20,  new Color(51, 255, 255))), (this.width / 2) * CELL_SIZE,
+        (this.height / 2) * CELL_SIZE);
+    return scene;
+  }
+
+
+  //creates the entire maze of vertices
+  public ArrayList<ArrayList<Vertex>> createVertices() {
+    ArrayList<ArrayList<Vertex>> matrix = new ArrayList<ArrayList<Vertex>>();
+    int multiple = 0;
+    for (int i = 0; i < this.height; i += 1 ) {
+      ArrayList<Vertex> rows = new  ArrayList<Vertex>();
+      for (int j = 0; j < this.width; j += 1) {
+        rows.add(j, new Vertex(j, i, multiple + j));
+      }
+      matrix.add(rows);
+      multiple += this.width;
+    }
+    return matrix;
+  }
+
+  //fixes the edges for each vertex in this grid and creates edges whenever a neighboring
+  //vertex is not itself. Every edge is created once here and registered under its id
+  public void fixConnections() {
+    long begin = System.nanoTime();
+    ArrayList<ArrayList<Vertex>> grid = this.createVertices();
+    ArrayList<Edge> registry = new ArrayList<Edge>(2 * this.width * this.height);
+    int[] weights = SpanningTree.randomWeights(this.width, this.height, 
+        new SplittableRandom(this.seed));
+    for (int i = 0; i < this.height; i += 1) {
+      for (int j = 0; j < this.width; j += 1) {
+        if ((j != width - 1)) {
+          this.register(registry, new Edge(grid.get(i).get(j), grid.get(i).get(j + 1), 
+              weights[registry.size()]));
+        }
+        if ((i != height - 1)) {
+          this.register(registry, new Edge(grid.get(i).get(j), grid.get(i + 1).get(j), 
+              weights[registry.size()]));
+        }
+      }
+    }
+    this.board = grid;
+    this.edges = registry;
+    this.sortedEdges = null;
+    Graph.metrics.time("generate.fixConnections", System.nanoTime() - begin);
+  }
+
+  //EFFECT: gives this edge the next id in the registry and connects its two vertices
+  void register(ArrayList<Edge> registry, Edge e) {
+    e.id = registry.size();
+    registry.add(e);
+    e.from.outEdges.add(e);
+    e.to.outEdges.add(e);
+  }
+
+  //gets all the edges that connect the vertices in the graph, ordered by id
+  public ArrayList<Edge> getAllEdges() {
+    long begin = System.nanoTime();
+    ArrayList<Edge> result = new ArrayList<Edge>(this.edges());
+    Graph.metrics.time("generate.getAllEdges", System.nanoTime() - begin);
+    return result;
+  }
+
+  //gets all the edges sorted by weight; sorted once per registry and shared by every caller,
+  //so it must not be modified
+  public ArrayList<Edge> getSortedEdges() {
+    if (this.sortedEdges == null) {
+      this.sortedEdges = this.sortEdges(this.getAllEdges());
+    }
+    return this.sortedEdges;
+  }
+
+  //sorts all the edges in this graph by their weights, keeping edges of equal weight
+  //in the order they were given, as Collections.sort does
+  public ArrayList<Edge> sortEdges(ArrayList<Edge> allEdges) {
+    long begin = System.nanoTime();
+    int[] weights = new int[allEdges.size()];
+    for (int i = 0; i < weights.length; i += 1) {
+      weights[i] = allEdges.get(i).weight;
+    }
+    Edge[] given = allEdges.toArray(new Edge[weights.length]);
+    int[] order = SpanningTree.byWeight(weights);
+    for (int i = 0; i < order.length; i += 1) {
+      allEdges.set(i, given[order[i]]);
+    }
+    Graph.metrics.time("generate.sortEdges", System.nanoTime() - begin);
+    return allEdges;
+  }
+
+
+  //implements the Kruskal algorithm
+  public List<Edge> kruskal() {
+    return this.edgesOf(this.kruskalTree());
+  }
+
+  //gives the spanning tree Kruskal makes of the registered weights
+  SpanningTree kruskalTree() {
+    long begin = System.nanoTime();
+    SpanningTree result = SpanningTree.kruskal(this.width, this.height, this.weights());
+    Graph.metrics.time("generate.kruskal", System.nanoTime() - begin);
+    return result;
+  }
+
+  //returns the representative for this vertex
+  //adapter over a map of representatives; compresses the path it walks
+  public Vertex find(HashMap<Vertex, Vertex> representative, Vertex v) {
+    Vertex root = v;
+    while (!representative.get(root).equals(root)) {
+      root = representative.get(root);
+    }
+    while (!v.equals(root)) {
+      Vertex next = representative.get(v);
+      representative.put(v, root);
+      v = next;
+    }
+    return representative.get(root);
+  }
+
+  //makes v1 the representative of v2
+  public void union(HashMap<Vertex, Vertex> representatives, Vertex v1, Vertex v2) {
+    representatives.put(v2, v1);
+  }
+
+
+  //implements the breadth first search 
+  public void findPathDFS(Vertex from, Vertex to) {
+    long begin = System.nanoTime();
+    this.search(from, to, this.solver().stack());
+    this.searched("findPath.dfs", begin, this.solver.visitedCount);
+  }
+
+  //implements the depth first search
+  public void findPathBFS(Vertex from, Vertex to) {
+    long begin = System.nanoTime();
+    this.search(from, to, this.solver().queue());
+    this.searched("findPath.bfs", begin, this.solver.visitedCount);
+  }
+
+  //implements A*, a best first search: it expands first the cell with the lowest
+  //distance from the start plus Manhattan distance to the end
+  public void findPathAStar(Vertex from, Vertex to) {
+    long begin = System.nanoTime();
+    this.search(from, to, this.solver().heap(to.name));
+    this.searched("findPath.astar", begin, this.solver.visitedCount);
+  }
+
+  //implements a breadth first search from both ends that stops where they meet
+  public void findPathBidirectional(Vertex from, Vertex to) {
+    long begin = System.nanoTime();
+    this.solver().solveBidirectional(from.name, to.name);
+    this.copySearch(from.name, to.name);
+    this.searched("findPath.bidirectional", begin, this.solver.visitedCount);
+  }
+
+  //EFFECT: reports the wall time of the search that began at this System.nanoTime and
+  //how many cells it expanded
+  void searched(String name, long begin, int expanded) {
+    Graph.metrics.time(name, System.nanoTime() - begin);
+    Graph.metrics.count(name + ".expanded", expanded);
+  }
+
+  //runs the solver engine with this worklist and fills visited, searchPath and the
+  //reach times of the vertices exactly as findPath would
+  public void search(Vertex from, Vertex to, ICellCollection worklist) {
+    this.solver().solve(from.name, to.name, worklist);
+    this.copySearch(from.name, to.name);
+  }
+
+  //gives the solver engine of this maze, making it on first use
+  public MazeSolver solver() {
+    if (this.solver == null) {
+      this.solver = new MazeSolver(this.passages);
+    }
+    return this.solver;
+  }
+
+  //EFFECT: adds the cells the solver visited and found to visited and searchPath,
+  //gives the reached vertices their reach times and makes the search the replay
+  void copySearch(int from, int to) {
+    this.replay = SearchReplay.of(this.solver, from, to);
+    this.replayStart = this.visited.size();
+    for (int i = 0; i < this.solver.visitedCount; i += 1) {
+      this.visited.add(this.vertexAt(this.solver.order[i]));
+    }
+    for (int i = 0; i < this.solver.pathLength; i += 1) {
+      this.searchPath.add(this.vertexAt(this.solver.path[i]));
+    }
+    for (int i = 0; i < this.solver.reachedCount; i += 1) {
+      int cell = this.solver.reached[i];
+      this.vertexAt(cell).reachTime = this.solver.reachTime[cell];
+    }
+  }
+
+  //checks if the entry of visited at this index was added by the search the replay
+  //replays, rather than by the player or another search
+  public boolean replayed(int index) {
+    return this.replay != null && index >= this.replayStart 
+        && index < this.replayStart + this.replay.size();
+  }
+
+  //gives the vertex of this cell
+  public Vertex vertexAt(int cell) {
+    return this.board().get(cell / this.width).get(cell % this.width);
+  }
+
+  //checks if the search being shown has reached the end by now. A replayed search
+  //knows the step it gets there at; a search run on the vertices themselves keeps it
+  //on the end vertex, and with no vertices there has been no such search to hold back
+  public boolean searchSolved() {
+    if (this.replay != null) {
+      return this.replay.solvedBy(this.time);
+    }
+    return this.board == null || this.time >= this.vertexAt(this.grid.cells() - 1).reachTime;
+  }
+
+
+  //the generic find path method: helper to both findPathDFS and findPathBFS
+  public void findPath(Vertex from, Vertex to, ICollection<Vertex> worklist) {
+    long begin = System.nanoTime();
+    int expanded = this.visited.size();
+    int count = 0;
+    HashMap<Vertex, Vertex> cameFromEdge = new HashMap<Vertex, Vertex>();
+    worklist.add(from);
+    cameFromEdge.put(from, from);
 
     while (worklist.size() > 0) {
       Vertex current = worklist.remove();
@@ -540,50 +3633,170 @@ class Graph extends World {
           searchPath.add(current);
           current = cameFromEdge.get(current);
         }
+        this.searched("findPath", begin, this.visited.size() - expanded);
         return;
       }
       else {
-        for (Edge e : current.outEdges) {
-          if (current.equals(e.from) && !visited.contains(e.to)) {
-            worklist.add(e.to);
-            cameFromEdge.put(e.to, e.from);
-            e.to.reachTime = count;
-          }
-          else if (current.equals(e.to) && !visited.contains(e.from)) {
-            worklist.add(e.from);
-            cameFromEdge.put(e.from, e.to);
-            e.from.reachTime = count;
+        for (Vertex next : this.neighbors(current)) {
+          if (!visited.contains(next)) {
+            worklist.add(next);
+            cameFromEdge.put(next, current);
+            next.reachTime = count;
           }
         }
         visited.add(current);
       }
       count ++;
     }
+    this.searched("findPath", begin, this.visited.size() - expanded);
+  }
+
+  //gives the vertices reachable in one step from v, in the order up, left, right, down
+  public ArrayList<Vertex> neighbors(Vertex v) {
+    ArrayList<Vertex> result = new ArrayList<Vertex>();
+    if (this.grid.canGoUp(v.name)) {
+      result.add(this.board().get(v.y - 1).get(v.x));
+    }
+    if (this.grid.canGoLeft(v.name)) {
+      result.add(this.board().get(v.y).get(v.x - 1));
+    }
+    if (this.grid.canGoRight(v.name)) {
+      result.add(this.board().get(v.y).get(v.x + 1));
+    }
+    if (this.grid.canGoDown(v.name)) {
+      result.add(this.board().get(v.y + 1).get(v.x));
+    }
+    return result;
+  }
+
+  //EFFECT: builds a new maze in a single pass: runs Kruskal once over the weights of
+  //this seed; the edges are made only if something asks for them
+  public void generate() {
+    this.board = null;
+    this.build(this.kruskalTree());
+  }
+
+  //EFFECT: makes this spanning tree the maze, and splits the registered edges into
+  //the tree and the walls that stay up if they have been made
+  void build(SpanningTree tree) {
+    this.tree = tree;
+    this.grid = this.tree.grid;
+    this.passages = new PassageIndex(this.grid);
+    this.solver = null;
+    this.solution = null;
+    this.animationTime = tree.size();
+    if (this.board != null) {
+      this.splitEdges();
+    }
+  }
+
+  //EFFECT: makes the object view of this maze, the board of vertices and the edges
+  //between them split into the tree and the walls, unless it is already made
+  public void buildObjects() {
+    if (this.board == null) {
+      long begin = System.nanoTime();
+      this.fixConnections();
+      this.splitEdges();
+      Graph.metrics.time("generate.objects", System.nanoTime() - begin);
+    }
+  }
+
+  //EFFECT: splits the registered edges into the tree and the walls that stay up
+  void splitEdges() {
+    this.allEdges = new ArrayList<Edge>(this.getSortedEdges());
+    this.mst = Collections.unmodifiableList(this.edgesOf(this.tree));
+    this.removeMST();
+    this.removeEdges();
+  }
+
+  //gives the board of vertices, making the object view on first use
+  public ArrayList<ArrayList<Vertex>> board() {
+    this.buildObjects();
+    return this.board;
+  }
+
+  //gives every edge, indexed by id, making the object view on first use
+  public ArrayList<Edge> edges() {
+    this.buildObjects();
+    return this.edges;
+  }
+
+  //gives the edges of the tree in the order they come down, making the object view
+  //on first use
+  public List<Edge> mst() {
+    this.buildObjects();
+    return this.mst;
+  }
+
+  //gives the walls that stay up, making the object view on first use
+  public ArrayList<Edge> allEdges() {
+    this.buildObjects();
+    return this.allEdges;
+  }
+
+  //gives the weight of every edge, indexed by id: the registered edges' weights once
+  //they are made, and before that the weights this seed gives them
+  public int[] weights() {
+    if (this.edges == null) {
+      return SpanningTree.randomWeights(this.width, this.height, 
+          new SplittableRandom(this.seed));
+    }
+    int[] result = new int[this.edges.size()];
+    for (Edge e : this.edges) {
+      result[e.id] = e.weight;
+    }
+    return result;
+  }
+
+  //gives the registered edges of this spanning tree, in the order Kruskal took them
+  public List<Edge> edgesOf(SpanningTree t) {
+    List<Edge> result = new ArrayList<Edge>(t.size());
+    for (int i = 0; i < t.size(); i += 1) {
+      result.add(this.edges().get(t.edgeAt(i)));
+    }
+    return result;
   }
 
   //removes the minimum spanning tree from the list of all edges
   public void removeMST() {
+    long begin = System.nanoTime();
+    EdgeSet inTree = new EdgeSet(this.mst.size());
     int count = 0;
     for (Edge me : this.mst) {
-      allEdges.remove(me);
+      inTree.add(me);
       me.reachTime = count;
       count += 1;
     }
+    ArrayList<Edge> walls = new ArrayList<Edge>(this.allEdges.size());
+    for (Edge e : this.allEdges) {
+      if (!inTree.contains(e)) {
+        walls.add(e);
+      }
+    }
+    this.allEdges = walls;
     this.animationTime = count;
+    Graph.metrics.time("generate.removeMST", System.nanoTime() - begin);
   }
 
-  //removes all the edges that aren't in the MST from the from vertex
-  //of the outEdges of each Edge
+  //removes all the edges that aren't in the MST from the outEdges of every vertex
   public void removeEdges() {
-    ArrayList<Edge> temp = new ArrayList<Edge>();
-    for (Edge e : allEdges) {
-      temp.add(e);
+    long begin = System.nanoTime();
+    EdgeSet walls = new EdgeSet(this.allEdges.size());
+    for (Edge e : this.allEdges) {
+      walls.add(e);
     }
-
-    for (Edge e : temp) {
-      e.from.outEdges.remove(e);
-      e.to.outEdges.remove(e);
+    for (ArrayList<Vertex> row : this.board) {
+      for (Vertex v : row) {
+        ArrayList<Edge> kept = new ArrayList<Edge>(v.outEdges.size());
+        for (Edge e : v.outEdges) {
+          if (!walls.contains(e)) {
+            kept.add(e);
+          }
+        }
+        v.outEdges = kept;
+      }
     }
+    Graph.metrics.time("generate.removeEdges", System.nanoTime() - begin);
   }
 }
 
@@ -631,24 +3844,873 @@ class Queue<T> implements ICollection<T> {
     this.items = new Deque<T>();
   }
 
-  //Effect: remove from the stack
-  //returns the item that is removed
-  public T remove() {
-    return this.items.removeFromHead();
-  }
+  //Effect: remove from the stack
+  //returns the item that is removed
+  public T remove() {
+    return this.items.removeFromHead();
+  }
+
+  //Effect: adds the given item to the stack
+  public void add(T t) {
+    this.items.addAtTail(t);
+  }
+
+  public int size() {
+    return this.items.size();
+  }
+}
+
+
+
+//a worklist of cells for MazeSolver: the int counterpart of ICollection
+interface ICellCollection {
+
+  //removes a cell from the collection
+  int remove();
+
+  //adds a cell to the collection
+  void add(int cell);
+
+  //gives the size of the collection
+  int size();
+}
+
+//a stack of cells over a fixed int[]
+class CellStack implements ICellCollection {
+  int[] items;
+  int size;
+
+  CellStack(int capacity) {
+    this.items = new int[Math.max(1, capacity)];
+    this.size = 0;
+  }
+
+  //Effect: remove from the stack
+  //returns the cell that is removed
+  public int remove() {
+    this.size -= 1;
+    return this.items[this.size];
+  }
+
+  //Effect: adds the given cell to the stack
+  public void add(int cell) {
+    this.items[this.size] = cell;
+    this.size += 1;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  //EFFECT: empties the stack
+  public void clear() {
+    this.size = 0;
+  }
+}
+
+//a queue of cells over a fixed int[] used as a ring buffer
+class CellQueue implements ICellCollection {
+  int[] items;
+  int head;
+  int size;
+
+  CellQueue(int capacity) {
+    this.items = new int[Math.max(1, capacity)];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  //Effect: remove from the queue
+  //returns the cell that is removed
+  public int remove() {
+    int cell = this.items[this.head];
+    this.head = (this.head + 1) % this.items.length;
+    this.size -= 1;
+    return cell;
+  }
+
+  //Effect: adds the given cell to the queue
+  public void add(int cell) {
+    this.items[(this.head + this.size) % this.items.length] = cell;
+    this.size += 1;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  //EFFECT: empties the queue
+  public void clear() {
+    this.head = 0;
+    this.size = 0;
+  }
+}
+
+
+
+//a priority queue of cells for A*: takes out first the cell whose depth plus Manhattan
+//distance to the target is smallest, breaking ties toward the larger cell
+class CellHeap implements ICellCollection {
+  long[] items;
+  int size;
+  int[] depth;
+  int width;
+  int target;
+
+  CellHeap(int capacity, int[] depth, int width, int target) {
+    this.items = new long[Math.max(1, capacity)];
+    this.size = 0;
+    this.depth = depth;
+    this.width = width;
+    this.target = target;
+  }
+
+  //gives the estimated length of the path from the start through this cell
+  int estimate(int cell) {
+    return this.depth[cell] + Math.abs(cell % this.width - this.target % this.width)
+        + Math.abs(cell / this.width - this.target / this.width);
+  }
+
+  //Effect: remove from the heap
+  //returns the cell with the smallest estimate
+  public int remove() {
+    long top = this.items[0];
+    this.size -= 1;
+    long last = this.items[this.size];
+    int i = 0;
+    while (2 * i + 1 < this.size) {
+      int child = 2 * i + 1;
+      if (child + 1 < this.size && this.items[child + 1] < this.items[child]) {
+        child += 1;
+      }
+      if (this.items[child] >= last) {
+        break;
+      }
+      this.items[i] = this.items[child];
+      i = child;
+    }
+    this.items[i] = last;
+    return ~(int) top;
+  }
+
+  //Effect: adds the given cell to the heap, keyed by its estimate
+  //the cell's depth must be set before it is added
+  public void add(int cell) {
+    long key = ((long) this.estimate(cell) << 32) | (~cell & 0xFFFFFFFFL);
+    int i = this.size;
+    this.size += 1;
+    while (i > 0 && this.items[(i - 1) / 2] > key) {
+      this.items[i] = this.items[(i - 1) / 2];
+      i = (i - 1) / 2;
+    }
+    this.items[i] = key;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  //EFFECT: empties the heap and keys it by the distance to this target
+  public void clear(int target) {
+    this.size = 0;
+    this.target = target;
+  }
+}
+
+
+
+//measurements that are too slow or too big for ExamplesMaze
+//run with: java MazeBenchmarks memory
+class MazeBenchmarks {
+
+  public static void main(String[] args) {
+    String which = args.length > 0 ? args[0] : "memory";
+    if (which.equals("memory")) {
+      memory(new int[] {100, 1000, 4000});
+    }
+    else if (which.equals("reset")) {
+      reset(new int[] {25, 50, 100, 150}, 5);
+    }
+    else if (which.equals("solve")) {
+      solve(new int[] {1000, 4000}, 5);
+    }
+    else if (which.equals("solvers")) {
+      solvers(new int[] {100, 1000, 4000}, 5);
+    }
+    else if (which.equals("frames")) {
+      frames(new int[] {100, 500}, 600);
+    }
+    else if (which.equals("alloc")) {
+      allocation(new int[] {100, 500}, 600);
+    }
+    else if (which.equals("boruvka")) {
+      boruvka(new int[] {1000, 2000}, new int[] {1, 2, 4, 8, 
+        Runtime.getRuntime().availableProcessors()}, 3);
+    }
+    else if (which.equals("load")) {
+      load(10000, 3);
+    }
+    else if (which.equals("bulk")) {
+      bulk(20000, 20, new int[] {1, 2, 4, Runtime.getRuntime().availableProcessors()});
+    }
+    else if (which.equals("huge")) {
+      huge(5000, 42);
+    }
+  }
+
+  //stress test: generates and solves an n x n maze on the main thread's default stack,
+  //and prints how long each part took. Nothing in generation or solving recurses, and
+  //every stack is an int[] bounded by the number of cells; it needs a heap of several
+  //hundred MB at 5000 x 5000, which is why it is not one of the ExamplesMaze tests
+  static void huge(int n, long seed) {
+    long start = System.nanoTime();
+    SpanningTree tree = SpanningTree.random(n, n, new SplittableRandom(seed));
+    long made = System.nanoTime();
+    MazeSolver solver = new MazeSolver(new PassageIndex(tree.grid));
+    solver.solve("dfs", 0, n * n - 1);
+    boolean ok = tree.size() == n * n - 1 && solver.pathLength > 0 
+        && solver.parent[solver.path[solver.pathLength - 1]] == 0;
+    solver.solve("bfs", 0, n * n - 1);
+    ok = ok && solver.parent[solver.path[solver.pathLength - 1]] == 0;
+    long solved = System.nanoTime();
+    System.out.println(n + "x" + n + "  generate: " + ((made - start) / 1000000) 
+        + " ms  dfs + bfs: " + ((solved - made) / 1000000) + " ms  path: " 
+        + solver.pathLength + (ok ? "" : "  WRONG"));
+  }
+
+  //prints the heap held by the object board (Vertex, outEdges and Edge objects)
+  //next to the compact MazeGrid for square mazes of the given sizes
+  static void memory(int[] sizes) {
+    Runtime rt = Runtime.getRuntime();
+    for (int n : sizes) {
+      MazeGrid grid = new MazeGrid(n, n);
+      String objects;
+      try {
+        Graph g = new Graph(1, 1);
+        g.width = n;
+        g.height = n;
+        long base = used(rt);
+        g.fixConnections();
+        objects = ((used(rt) - base) >> 10) + " KB";
+        g.board = null;
+      }
+      catch (OutOfMemoryError e) {
+        objects = "out of memory";
+      }
+      System.out.println(n + "x" + n + "  objects: " + objects
+          + "  grid: " + (grid.bytes() >> 10) + " KB");
+    }
+  }
+
+  //prints the average time the "r" key takes to build a new maze of each size
+  static void reset(int[] sizes, int runs) {
+    for (int n : sizes) {
+      Graph g = new Graph(n, n);
+      g.onKeyEvent("r");
+      long start = System.nanoTime();
+      for (int i = 0; i < runs; i += 1) {
+        g.onKeyEvent("r");
+      }
+      long perReset = (System.nanoTime() - start) / runs;
+      System.out.println(n + "x" + n + "  reset: " + (perReset / 1000000.0) + " ms");
+    }
+  }
+
+  //prints the time MazeSolver takes for a breadth and a depth first search across a
+  //serpentine maze of each size, whose only path runs through every cell
+  static void solve(int[] sizes, int runs) {
+    for (int n : sizes) {
+      MazeSolver solver = new MazeSolver(new PassageIndex(serpentine(n, n)));
+      String line = n + "x" + n;
+      for (int mode = 0; mode < 2; mode += 1) {
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i += 1) {
+          ICellCollection worklist = mode == 0 ? solver.queue() : solver.stack();
+          solver.solve(0, n * n - 1, worklist);
+        }
+        long perSolve = (System.nanoTime() - start) / runs;
+        line += (mode == 0 ? "  bfs: " : "  dfs: ") + (perSolve / 1000000.0) + " ms";
+      }
+      System.out.println(line + "  visited: " + solver.visitedCount);
+    }
+  }
+
+  //prints the nodes each solver expands, and its time, on random mazes of each size
+  static void solvers(int[] sizes, int runs) {
+    String[] names = {"bfs", "dfs", "a*", "bidirectional"};
+    for (int n : sizes) {
+      MazeGrid grid = SpanningTree.random(n, n, new SplittableRandom(n)).grid;
+      MazeSolver solver = new MazeSolver(new PassageIndex(grid));
+      String line = n + "x" + n;
+      for (int mode = 0; mode < names.length; mode += 1) {
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i += 1) {
+          if (mode == 0) {
+            solver.solve(0, n * n - 1, solver.queue());
+          }
+          else if (mode == 1) {
+            solver.solve(0, n * n - 1, solver.stack());
+          }
+          else if (mode == 2) {
+            solver.solve(0, n * n - 1, solver.heap(n * n - 1));
+          }
+          else {
+            solver.solveBidirectional(0, n * n - 1);
+          }
+        }
+        long perSolve = (System.nanoTime() - start) / runs;
+        line += "  " + names[mode] + ": " + solver.visitedCount + " nodes "
+            + (perSolve / 1000000.0) + " ms";
+      }
+      System.out.println(line);
+    }
+  }
+
+  //prints the average time makeScene takes per frame while the walls come down and
+  //while a breadth first search is animated, for square mazes of each size
+  static void frames(int[] sizes, int ticks) {
+    for (int n : sizes) {
+      Graph g = new Graph(n, n);
+      g.makeScene();
+      long start = System.nanoTime();
+      for (int i = 0; i < ticks; i += 1) {
+        g.step();
+        g.makeScene();
+      }
+      long building = (System.nanoTime() - start) / ticks;
+      while (!g.constructed()) {
+        g.step();
+      }
+      g.onKeyEvent("b");
+      g.makeScene();
+      start = System.nanoTime();
+      for (int i = 0; i < ticks; i += 1) {
+        g.step();
+        g.makeScene();
+      }
+      long solving = (System.nanoTime() - start) / ticks;
+      g.close();
+      System.out.println(n + "x" + n + "  building: " + (building / 1000000.0) 
+          + " ms/frame  solving: " + (solving / 1000000.0) + " ms/frame");
+    }
+  }
+
+  //prints the bytes this thread allocates per frame (onTick and makeScene) while the
+  //walls come down and while a breadth first search is animated
+  static void allocation(int[] sizes, int ticks) {
+    com.sun.management.ThreadMXBean threads = 
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long id = Thread.currentThread().getId();
+    for (int n : sizes) {
+      Graph g = new Graph(n, n);
+      g.makeScene();
+      long start = threads.getThreadAllocatedBytes(id);
+      for (int i = 0; i < ticks; i += 1) {
+        g.step();
+        g.makeScene();
+      }
+      long building = (threads.getThreadAllocatedBytes(id) - start) / ticks;
+      while (!g.constructed()) {
+        g.step();
+      }
+      g.onKeyEvent("b");
+      g.makeScene();
+      start = threads.getThreadAllocatedBytes(id);
+      for (int i = 0; i < ticks; i += 1) {
+        g.step();
+        g.makeScene();
+      }
+      long solving = (threads.getThreadAllocatedBytes(id) - start) / ticks;
+      g.close();
+      System.out.println(n + "x" + n + "  building: " + building 
+          + " bytes/frame  solving: " + solving + " bytes/frame");
+    }
+  }
+
+  //prints how many mazes of n x n cells a MazePipeline makes and solves per second
+  //with each number of threads
+  static void bulk(int count, int n, int[] threads) {
+    for (int k : threads) {
+      long start = System.nanoTime();
+      MazePipeline pipeline = new MazePipeline(count, n, n, 1, Maze.KRUSKAL, "bfs", k);
+      try {
+        while (pipeline.hasNext()) {
+          pipeline.next();
+        }
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      finally {
+        pipeline.close();
+      }
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.out.println(count + " mazes of " + n + "x" + n + " on " + k + " threads: " 
+          + (int) (count / seconds) + " mazes/s");
+    }
+  }
+
+  //prints the time Kruskal takes to build the tree of a square maze of each size,
+  //then the time Boruvka takes for the same weights on each number of threads
+  static void boruvka(int[] sizes, int[] threads, int runs) {
+    for (int n : sizes) {
+      int[] weights = SpanningTree.randomWeights(n, n, new SplittableRandom(n));
+      SpanningTree.kruskal(n, n, weights);
+      long start = System.nanoTime();
+      for (int i = 0; i < runs; i += 1) {
+        SpanningTree.kruskal(n, n, weights);
+      }
+      String line = n + "x" + n + "  kruskal: " 
+          + ((System.nanoTime() - start) / runs / 1000000.0) + " ms";
+      for (int k : threads) {
+        ForkJoinPool pool = new ForkJoinPool(k);
+        SpanningTree.boruvka(n, n, weights, pool);
+        start = System.nanoTime();
+        for (int i = 0; i < runs; i += 1) {
+          SpanningTree.boruvka(n, n, weights, pool);
+        }
+        line += "  boruvka/" + k + ": " 
+            + ((System.nanoTime() - start) / runs / 1000000.0) + " ms";
+        pool.shutdown();
+      }
+      System.out.println(line);
+    }
+  }
+
+  //writes an n x n maze file with Eller's algorithm, then prints the time it takes to
+  //read the raw bytes, to map it into a MazeGrid, to load it as a Maze, and to read
+  //it into a MazeGrid through a stream
+  static void load(int n, int runs) {
+    File file = null;
+    try {
+      file = File.createTempFile("maze", ".maze");
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+      new EllerGenerator(n, n, 1).write(out);
+      out.close();
+      String line = n + "x" + n + " (" + (file.length() >> 20) + " MB)";
+      String[] names = {"raw read", "map", "load", "stream"};
+      byte[] raw = new byte[1 << 16];
+      for (int mode = 0; mode < names.length; mode += 1) {
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i += 1) {
+          if (mode == 0) {
+            FileInputStream in = new FileInputStream(file);
+            while (in.read(raw) > 0) {
+              //only the reading is timed
+            }
+            in.close();
+          }
+          else if (mode == 1) {
+            MazeFile.map(file).grid();
+          }
+          else if (mode == 2) {
+            MazeFile.load(file);
+          }
+          else {
+            MazeReader in = new MazeReader(new FileInputStream(file));
+            in.readGrid();
+            in.close();
+          }
+        }
+        line += "  " + names[mode] + ": " + ((System.nanoTime() - start) / runs / 1000000.0) 
+            + " ms";
+      }
+      System.out.println(line);
+    }
+    catch (IOException e) {
+      System.out.println("load benchmark failed: " + e.getMessage());
+    }
+    finally {
+      if (file != null) {
+        file.delete();
+      }
+    }
+  }
+
+  //makes a maze whose rows are open end to end and joined at alternating ends
+  static MazeGrid serpentine(int width, int height) {
+    MazeGrid grid = new MazeGrid(width, height);
+    for (int y = 0; y < height; y += 1) {
+      for (int x = 0; x < width - 1; x += 1) {
+        grid.open(grid.cellAt(x, y), MazeGrid.RIGHT);
+      }
+      if (y < height - 1) {
+        grid.open(grid.cellAt(y % 2 == 0 ? width - 1 : 0, y), MazeGrid.DOWN);
+      }
+    }
+    return grid;
+  }
+
+  //gives the heap in use after a full collection
+  static long used(Runtime rt) {
+    for (int i = 0; i < 3; i += 1) {
+      System.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
+
+
+//a benchmark suite for the hot paths of the game, in the manner of JMH: each benchmark
+//is set up on a maze of a fixed size and seed, warmed up, then timed over several
+//iterations, and the scores are written as JMH-style JSON. Two runs can then be
+//compared, failing if the second is slower beyond a tolerance
+//run with: java MazeSuite run [file] [size...]
+//      or: java MazeSuite compare baseline.json current.json [tolerance]
+class MazeSuite {
+  static final String[] BENCHMARKS = {"fixConnections", "getAllEdges", "kruskal", 
+    "findPathBFS", "findPathDFS", "onKeyEvent", "makeScene"};
+  static final int[] SIZES = {10, 100, 500, 2000};
+  static final long SEED = 42;
+  static final int WARMUP_ITERATIONS = 2;
+  static final int ITERATIONS = 5;
+  static final long ITERATION_NANOS = 200000000L;
+  //makeScene paints a raster of size * CELL_SIZE pixels square, so larger sizes are
+  //left out rather than run out of memory
+  static final int MAX_SCENE_SIZE = 500;
+  //keeps the results of benchmarks alive so the JIT cannot drop the work
+  static int sink = 0;
+
+  public static void main(String[] args) throws IOException {
+    if (args.length > 0 && args[0].equals("compare") && args.length >= 3) {
+      double tolerance = args.length > 3 ? Double.parseDouble(args[3]) : 0.1;
+      if (!compare(read(args[1]), read(args[2]), tolerance, System.out)) {
+        System.exit(1);
+      }
+    }
+    else if (args.length > 0 && args[0].equals("run")) {
+      String file = args.length > 1 ? args[1] : "maze-bench.json";
+      int[] sizes = SIZES;
+      if (args.length > 2) {
+        sizes = new int[args.length - 2];
+        for (int i = 2; i < args.length; i += 1) {
+          sizes[i - 2] = Integer.parseInt(args[i]);
+        }
+      }
+      run(file, sizes);
+    }
+    else {
+      System.out.println("usage: java MazeSuite run [file] [size...]"
+          + " | compare baseline.json current.json [tolerance]");
+    }
+  }
+
+  //runs every benchmark at every size and writes the scores to the file as JSON
+  static void run(String file, int[] sizes) throws IOException {
+    StringBuilder json = new StringBuilder("[");
+    for (String benchmark : BENCHMARKS) {
+      for (int size : sizes) {
+        if (benchmark.equals("makeScene") && size > MAX_SCENE_SIZE) {
+          System.out.println(benchmark + " " + size + "x" + size + ": skipped");
+          continue;
+        }
+        double[] scores = new double[ITERATIONS];
+        try {
+          Graph g = setUp(benchmark, size);
+          for (int i = 0; i < WARMUP_ITERATIONS; i += 1) {
+            iteration(benchmark, g);
+          }
+          for (int i = 0; i < ITERATIONS; i += 1) {
+            scores[i] = iteration(benchmark, g);
+          }
+          g.close();
+        }
+        catch (OutOfMemoryError e) {
+          System.out.println(benchmark + " " + size + "x" + size + ": out of memory");
+          continue;
+        }
+        double score = mean(scores);
+        double error = error(scores);
+        System.out.println(benchmark + " " + size + "x" + size + ": " 
+            + String.format("%.3f", score) + " +- " + String.format("%.3f", error) + " us/op");
+        json.append(json.length() == 1 ? "\n" : ",\n");
+        json.append(entry(benchmark, size, score, error, scores));
+      }
+    }
+    json.append("\n]\n");
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(json.toString().getBytes("UTF-8"));
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  //gives a maze of this size, with its walls down, for the benchmark to run on
+  static Graph setUp(String benchmark, int size) {
+    Graph g = Graph.seeded(size, size, SEED);
+    g.finishConstruction();
+    if (benchmark.equals("makeScene")) {
+      g.onKeyEvent("b");
+      g.makeScene();
+    }
+    return g;
+  }
+
+  //EFFECT: runs the benchmark once on this maze
+  static void runOnce(String benchmark, Graph g) {
+    Vertex start = g.vertexAt(0);
+    Vertex end = g.vertexAt(g.width * g.height - 1);
+    if (benchmark.equals("fixConnections")) {
+      g.fixConnections();
+      sink += g.edges.size();
+    }
+    else if (benchmark.equals("getAllEdges")) {
+      sink += g.getAllEdges().size();
+    }
+    else if (benchmark.equals("kruskal")) {
+      sink += g.kruskal().size();
+    }
+    else if (benchmark.equals("findPathBFS")) {
+      g.restartSearch();
+      g.findPathBFS(start, end);
+      sink += g.searchPath.size();
+    }
+    else if (benchmark.equals("findPathDFS")) {
+      g.restartSearch();
+      g.findPathDFS(start, end);
+      sink += g.searchPath.size();
+    }
+    else if (benchmark.equals("onKeyEvent")) {
+      g.onKeyEvent("right");
+      g.onKeyEvent("down");
+      g.onKeyEvent("left");
+      g.onKeyEvent("up");
+      sink += g.visited.size();
+      g.visited.clear();
+    }
+    else if (benchmark.equals("makeScene")) {
+      //a frame of a breadth first search, as MazeBenchmarks.frames times them; once the
+      //path is painted the search starts over, so no frame is left unchanged
+      if (g.time > g.replay.finish) {
+        g.onKeyEvent("b");
+      }
+      g.step();
+      sink += g.makeScene().width;
+    }
+    else {
+      throw new IllegalArgumentException("unknown benchmark: " + benchmark);
+    }
+  }
+
+  //gives the average time of a run, in microseconds, over one timed iteration. Runs
+  //are made in batches, doubled while a batch is too quick to time, so the clock is
+  //read seldom for fast benchmarks and after every run for slow ones
+  static double iteration(String benchmark, Graph g) {
+    long runs = 0;
+    long batch = 1;
+    long start = System.nanoTime();
+    long elapsed = 0;
+    while (elapsed < ITERATION_NANOS) {
+      for (long i = 0; i < batch; i += 1) {
+        runOnce(benchmark, g);
+      }
+      runs += batch;
+      elapsed = System.nanoTime() - start;
+      if (elapsed < ITERATION_NANOS / 100) {
+        batch *= 2;
+      }
+    }
+    return elapsed / 1000.0 / runs;
+  }
+
+  //gives the mean of the scores
+  static double mean(double[] scores) {
+    double sum = 0;
+    for (double s : scores) {
+      sum += s;
+    }
+    return sum / scores.length;
+  }
+
+  //gives three standard errors of the mean of the scores
+  static double error(double[] scores) {
+    double mean = mean(scores);
+    double squares = 0;
+    for (double s : scores) {
+      squares += (s - mean) * (s - mean);
+    }
+    return 3 * Math.sqrt(squares / (scores.length - 1) / scores.length);
+  }
+
+  //gives the JSON of one result, laid out the way JMH writes its results
+  static String entry(String benchmark, int size, double score, double error, 
+      double[] scores) {
+    StringBuilder raw = new StringBuilder();
+    for (double s : scores) {
+      raw.append(raw.length() == 0 ? "" : ", ").append(s);
+    }
+    return "  {\n"
+        + "    \"benchmark\" : \"MazeSuite." + benchmark + "\",\n"
+        + "    \"mode\" : \"avgt\",\n"
+        + "    \"threads\" : 1,\n"
+        + "    \"warmupIterations\" : " + WARMUP_ITERATIONS + ",\n"
+        + "    \"measurementIterations\" : " + ITERATIONS + ",\n"
+        + "    \"params\" : {\n"
+        + "      \"size\" : \"" + size + "\",\n"
+        + "      \"seed\" : \"" + SEED + "\"\n"
+        + "    },\n"
+        + "    \"primaryMetric\" : {\n"
+        + "      \"score\" : " + score + ",\n"
+        + "      \"scoreError\" : " + error + ",\n"
+        + "      \"scoreUnit\" : \"us/op\",\n"
+        + "      \"rawData\" : [[" + raw + "]]\n"
+        + "    }\n"
+        + "  }";
+  }
+
+  //gives the scores in a JSON file written by run, keyed by benchmark and size
+  static HashMap<String, Double> read(String file) throws IOException {
+    RandomAccessFile in = new RandomAccessFile(file, "r");
+    byte[] bytes = new byte[(int) in.length()];
+    try {
+      in.readFully(bytes);
+    }
+    finally {
+      in.close();
+    }
+    Matcher m = Pattern.compile("\"benchmark\" : \"([^\"]+)\".*?\"size\" : \"(\\d+)\""
+        + ".*?\"score\" : ([-0-9.eE]+)", Pattern.DOTALL).matcher(new String(bytes, "UTF-8"));
+    HashMap<String, Double> scores = new HashMap<String, Double>();
+    while (m.find()) {
+      scores.put(m.group(1) + " " + m.group(2) + "x" + m.group(2), 
+          Double.parseDouble(m.group(3)));
+    }
+    return scores;
+  }
+
+  //prints to out how each current score compares to its baseline
+  //returns false if any is slower than the baseline by more than the tolerance, or if
+  //a benchmark of the baseline is missing from the current results
+  static boolean compare(HashMap<String, Double> baseline, HashMap<String, Double> current,
+      double tolerance, PrintStream out) {
+    boolean ok = true;
+    ArrayList<String> keys = new ArrayList<String>(baseline.keySet());
+    for (String key : current.keySet()) {
+      if (!baseline.containsKey(key)) {
+        keys.add(key);
+      }
+    }
+    Collections.sort(keys);
+    for (String key : keys) {
+      if (!current.containsKey(key)) {
+        ok = false;
+        out.println(key + ": MISSING");
+      }
+      else if (!baseline.containsKey(key)) {
+        out.println(key + ": no baseline");
+      }
+      else {
+        double ratio = current.get(key) / baseline.get(key);
+        boolean slower = ratio > 1 + tolerance;
+        ok = ok && !slower;
+        out.println(key + ": " + String.format("%.2f", ratio) + "x" 
+            + (slower ? "  REGRESSION" : ""));
+      }
+    }
+    return ok;
+  }
+}
+
+
+//makes mazes with no window and streams them to a file, solving each one
+//run with: java MazeRunner count width height [seed] [generator] [solver] [file] [threads]
+//maze i is made from seed + i, so a run can be repeated maze for maze
+class MazeRunner {
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length < 3) {
+      System.out.println("usage: java MazeRunner count width height "
+          + "[seed] [generator] [solver] [file] [threads]");
+      return;
+    }
+    int count = Integer.parseInt(args[0]);
+    int width = Integer.parseInt(args[1]);
+    int height = Integer.parseInt(args[2]);
+    long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+    String generator = args.length > 4 ? args[4] : Maze.KRUSKAL;
+    String solver = args.length > 5 ? args[5] : "bfs";
+    String file = args.length > 6 ? args[6] : "mazes.bin";
+    int threads = args.length > 7 
+        ? Integer.parseInt(args[7]) : Runtime.getRuntime().availableProcessors();
+
+    DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+    long start = System.nanoTime();
+    long pathCells = 0;
+    MazePipeline pipeline = null;
+    try {
+      pipeline = new MazePipeline(count, width, height, seed, generator, solver, threads);
+      while (pipeline.hasNext()) {
+        MazeSolution solution = pipeline.next();
+        pathCells += solution.length();
+        solution.maze.write(out);
+      }
+    }
+    finally {
+      if (pipeline != null) {
+        pipeline.close();
+      }
+      out.close();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.println(count + " mazes of " + width + "x" + height + " to " + file
+        + " on " + threads + " threads in " + seconds + " s  (" + (int) (count / seconds) 
+        + " mazes/s, average path " + (count == 0 ? 0 : pathCells / count) + " cells)");
+  }
+}
+
 
-  //Effect: adds the given item to the stack
-  public void add(T t) {
-    this.items.addAtTail(t);
-  }
+//makes, checks and solves maze files one row at a time, for mazes too big for the heap
+//run with: java MazeStreamRunner generate width height seed file
+//      or: java MazeStreamRunner check file
+//      or: java MazeStreamRunner solve file
+class MazeStreamRunner {
 
-  public int size() {
-    return this.items.size();
+  public static void main(String[] args) throws IOException {
+    long start = System.nanoTime();
+    if (args.length == 5 && args[0].equals("generate")) {
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(args[4]), 1 << 16));
+      try {
+        new EllerGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]), 
+            Long.parseLong(args[3])).write(out);
+      }
+      finally {
+        out.close();
+      }
+      System.out.println("wrote " + args[1] + "x" + args[2] + " to " + args[4]);
+    }
+    else if (args.length == 2 && args[0].equals("check")) {
+      System.out.println(MazeFile.isPerfect(new File(args[1])) ? "perfect" : "not perfect");
+    }
+    else if (args.length == 2 && args[0].equals("solve")) {
+      //pathLength takes the maze to be perfect, so the file is read through once to
+      //check that before it is read again to be solved
+      if (!MazeFile.isPerfect(new File(args[1]))) {
+        System.err.println(args[1] + " is not a perfect maze, so it cannot be solved");
+        System.exit(1);
+      }
+      MazeReader maze = new MazeReader(new FileInputStream(args[1]));
+      try {
+        System.out.println("path: " + StreamingSolver.pathLength(maze) + " cells");
+      }
+      finally {
+        maze.close();
+      }
+    }
+    else {
+      System.out.println("usage: java MazeStreamRunner generate width height seed file"
+          + " | check file | solve file");
+      return;
+    }
+    System.out.println("in " + ((System.nanoTime() - start) / 1e9) + " s");
   }
 }
 
 
-
 //examples class
 class ExamplesMaze {
   Vertex v1;
@@ -752,7 +4814,12 @@ class ExamplesMaze {
     uoElist = new ArrayList<Edge>(Arrays.asList(e7, e9, e6, e12, e8, e11, e10));
     //spanning tree for egraph
     spanningTree = new ArrayList<Edge>(Arrays.asList(e6, e7, e8, e9, e11));
-    //graph
+    //graph; the last test's mazes let go of their rasters first
+    for (Graph g : Arrays.asList(graph, graph1, graph2, graph3, testGraph)) {
+      if (g != null) {
+        g.close();
+      }
+    }
     graph = new Graph(3, 3);
     graph1 = new Graph(5, 5);
     graph2 = new Graph(10, 10);
@@ -774,7 +4841,7 @@ class ExamplesMaze {
 
     for (int i = 0; i < 3; i += 1) {
       for (int j = 0; j < 3; j += 1) {
-        t.checkExpect(graph.board.get(i).get(j).equals(matrix.get(i).get(j)), true);
+        t.checkExpect(graph.board().get(i).get(j).equals(matrix.get(i).get(j)), true);
       }
     }
   }
@@ -802,6 +4869,43 @@ class ExamplesMaze {
     t.checkExpect(this.v1.hashCode() == this.v1.hashCode(), true);
   }
 
+  //test that equal edges hash alike, whichever way round they are
+  void testEdgeHashing(Tester t) {
+    this.reset();
+    Random rand = new Random();
+    EdgeSet set = new EdgeSet(0);
+    HashSet<Edge> expected = new HashSet<Edge>();
+    for (int i = 0; i < 5000; i += 1) {
+      Vertex a = new Vertex(0, 0, rand.nextInt(60));
+      Vertex b = new Vertex(0, 0, rand.nextInt(60));
+      Edge e = new Edge(a, b, rand.nextInt(10));
+      Edge reversed = new Edge(b, a, rand.nextInt(10));
+      t.checkExpect(e.equals(reversed), true);
+      t.checkExpect(e.hashCode() == reversed.hashCode(), true);
+      t.checkExpect(e.key() == reversed.key(), true);
+      Edge other = new Edge(new Vertex(0, 0, rand.nextInt(60)), b, 0);
+      t.checkExpect(e.equals(other), e.key() == other.key());
+      if (e.equals(other)) {
+        t.checkExpect(e.hashCode(), other.hashCode());
+      }
+      //the edge set agrees with a HashSet of edges
+      if (rand.nextBoolean()) {
+        t.checkExpect(set.add(e), expected.add(e));
+      }
+      else {
+        t.checkExpect(set.remove(reversed), expected.remove(reversed));
+      }
+      t.checkExpect(set.contains(other), expected.contains(other));
+      t.checkExpect(set.size(), expected.size());
+    }
+    int seen = 0;
+    for (Edge e : set) {
+      t.checkExpect(expected.contains(e), true);
+      seen += 1;
+    }
+    t.checkExpect(seen, expected.size());
+  }
+
   //test draw edge
   void testDrawEdge(Tester t) {
     this.reset();
@@ -832,13 +4936,36 @@ class ExamplesMaze {
 
   }
 
+  //test the disjoint set used by kruskal
+  void testDisjointSet(Tester t) {
+    this.reset();
+    DisjointSet set = new DisjointSet(6);
+    t.checkExpect(set.find(4), 4);
+    t.checkExpect(set.union(0, 1), true);
+    t.checkExpect(set.union(2, 3), true);
+    t.checkExpect(set.union(1, 3), true);
+    t.checkExpect(set.union(0, 2), false);
+    t.checkExpect(set.find(3) == set.find(0), true);
+    t.checkExpect(set.find(4) == set.find(0), false);
+    t.checkExpect(set.rank[set.find(0)], (byte) 2);
+    //a long chain of unions stays shallow
+    DisjointSet chain = new DisjointSet(100000);
+    for (int i = 1; i < 100000; i += 1) {
+      chain.union(i - 1, i);
+    }
+    t.checkExpect(chain.find(99999), chain.find(0));
+    t.checkExpect(chain.rank[chain.find(0)] <= 1, true);
+  }
+
   //test kruskals
   void testKruskals(Tester t) {
     this.reset();
-    t.checkExpect((this.graph.kruskal().size() >= this.graph.allEdges.size()), true);
-    t.checkExpect((this.graph1.kruskal().size() >= this.graph1.allEdges.size()), true);
-    t.checkExpect((this.graph2.kruskal().size() >= this.graph2.allEdges.size()), true);
-    t.checkExpect((this.graph3.kruskal().size() >= this.graph3.allEdges.size()), true);
+    t.checkExpect((this.graph.kruskal().size() >= this.graph.allEdges().size()), true);
+    t.checkExpect((this.graph1.kruskal().size() >= this.graph1.allEdges().size()), true);
+    t.checkExpect((this.graph2.kruskal().size() >= this.graph2.allEdges().size()), true);
+    t.checkExpect((this.graph3.kruskal().size() >= this.graph3.allEdges().size()), true);
+    //a spanning tree of a grid has one edge less than it has vertices
+    t.checkExpect(this.graph3.mst().size(), 50 * 50 - 1);
   }
 
   //test sort edges
@@ -850,20 +4977,229 @@ class ExamplesMaze {
   //test get all edges
   void testGetAllEdges(Tester t) {
     this.reset();
-    t.checkExpect((this.graph.getAllEdges().size() != this.graph.allEdges.size()), true);
-    t.checkExpect((this.graph1.getAllEdges().size() != this.graph1.allEdges.size()), true);
+    t.checkExpect((this.graph.getAllEdges().size() != this.graph.allEdges().size()), true);
+    t.checkExpect((this.graph1.getAllEdges().size() != this.graph1.allEdges().size()), true);
     t.checkExpect(this.graph1.getAllEdges().size() == this.graph2.getAllEdges().size(), false);
     t.checkExpect(this.graph2.getAllEdges().size() == this.graph1.getAllEdges().size(), false);
     t.checkExpect(this.graph3.getAllEdges().size() == this.graph2.getAllEdges().size(), false);
   }
 
+  //test the edge registry
+  void testEdgeRegistry(Tester t) {
+    this.reset();
+    //a w x h grid has (w - 1) * h + w * (h - 1) edges, each registered once under its id
+    t.checkExpect(this.graph3.edges().size(), 49 * 50 + 50 * 49);
+    for (int i = 0; i < this.graph3.edges().size(); i += 1) {
+      t.checkExpect(this.graph3.edges().get(i).id, i);
+    }
+    t.checkExpect(this.graph.getAllEdges(), this.graph.edges());
+    t.checkExpect(this.graph.getSortedEdges() == this.graph.getSortedEdges(), true);
+    ArrayList<Edge> sorted = this.graph2.getSortedEdges();
+    for (int i = 1; i < sorted.size(); i += 1) {
+      t.checkExpect(sorted.get(i - 1).weight <= sorted.get(i).weight, true);
+    }
+  }
+
+  //test the edge ids of the grid against the registry and the generated tree
+  void testSpanningTree(Tester t) {
+    this.reset();
+    for (Graph g : Arrays.asList(this.graph, this.graph3, new Graph(1, 4), new Graph(4, 1))) {
+      t.checkExpect(g.grid.edges(), g.edges().size());
+      for (Edge e : g.edges()) {
+        int dir = e.from.y == e.to.y ? MazeGrid.RIGHT : MazeGrid.DOWN;
+        t.checkExpect(g.grid.edgeCell(e.id), e.from.name);
+        t.checkExpect(g.grid.edgeDir(e.id), dir);
+        t.checkExpect(g.grid.edgeId(e.from.name, dir), e.id);
+      }
+      t.checkExpect(g.tree.size(), g.mst().size());
+      for (int i = 0; i < g.tree.size(); i += 1) {
+        t.checkExpect(g.tree.edgeAt(i), g.mst().get(i).id);
+      }
+    }
+  }
+
+  //test the passage index agrees with the grid and the spanning tree
+  void testPassageIndex(Tester t) {
+    this.reset();
+    MazeGrid g = this.graph3.grid;
+    PassageIndex index = this.graph3.passages;
+    for (int cell = 0; cell < g.cells(); cell += 1) {
+      t.checkExpect(index.canMove(cell, PassageIndex.UP), g.canGoUp(cell));
+      t.checkExpect(index.canMove(cell, PassageIndex.LEFT), g.canGoLeft(cell));
+      t.checkExpect(index.canMove(cell, PassageIndex.RIGHT), g.canGoRight(cell));
+      t.checkExpect(index.canMove(cell, PassageIndex.DOWN), g.canGoDown(cell));
+    }
+    for (Edge e : this.graph3.mst()) {
+      int dir = e.from.y == e.to.y ? PassageIndex.RIGHT : PassageIndex.DOWN;
+      t.checkExpect(index.canMove(e.from.name, dir), true);
+      t.checkExpect(index.neighbor(e.from.name, dir), e.to.name);
+    }
+    t.checkExpect(PassageIndex.direction("left"), PassageIndex.LEFT);
+    t.checkExpect(index.canMove(0, PassageIndex.direction("r")), false);
+  }
+
+  //test the solver engine visits, reaches and finds the same cells as findPath
+  void testSolverEngine(Tester t) {
+    this.reset();
+    for (Graph g : Arrays.asList(this.graph, this.graph2, this.graph3)) {
+      Vertex from = g.vertexAt(0);
+      Vertex to = g.vertexAt(g.grid.cells() - 1);
+      for (int mode = 0; mode < 2; mode += 1) {
+        this.clearReachTimes(g);
+        g.visited = new ArrayList<Vertex>();
+        g.searchPath = new ArrayList<Vertex>();
+        if (mode == 0) {
+          g.findPath(from, to, new Queue<Vertex>());
+        }
+        else {
+          g.findPath(from, to, new Stack<Vertex>());
+        }
+        ArrayList<Vertex> visited = g.visited;
+        ArrayList<Vertex> path = g.searchPath;
+        int[] reach = new int[g.grid.cells()];
+        for (int c = 0; c < reach.length; c += 1) {
+          reach[c] = g.vertexAt(c).reachTime;
+        }
+
+        this.clearReachTimes(g);
+        g.visited = new ArrayList<Vertex>();
+        g.searchPath = new ArrayList<Vertex>();
+        if (mode == 0) {
+          g.findPathBFS(from, to);
+        }
+        else {
+          g.findPathDFS(from, to);
+        }
+        t.checkExpect(g.visited, visited);
+        t.checkExpect(g.searchPath, path);
+        for (int c = 0; c < reach.length; c += 1) {
+          t.checkExpect(g.vertexAt(c).reachTime, reach[c]);
+        }
+      }
+    }
+    //the worklists are made once per solver and emptied by every search
+    MazeSolver solver = this.graph3.solver();
+    solver.solve("bfs", 0, 2499);
+    int expanded = solver.visitedCount;
+    int length = solver.pathLength;
+    CellQueue queue = solver.queue;
+    for (String name : new String[] {"dfs", "astar", "bidirectional", "dfs", "astar"}) {
+      solver.solve(name, 0, 2499);
+    }
+    CellStack stack = solver.stack;
+    CellHeap heap = solver.heap;
+    solver.solve("bfs", 0, 2499);
+    t.checkExpect(solver.visitedCount, expanded);
+    t.checkExpect(solver.pathLength, length);
+    t.checkExpect(solver.queue() == queue && solver.stack() == stack 
+        && solver.heap(0) == heap, true);
+  }
+
+  //test A* and the bidirectional search find the one path through the maze
+  void testOtherSolvers(Tester t) {
+    this.reset();
+    Graph[] graphs = {Graph.seeded(3, 3, 9), Graph.seeded(10, 10, 9), 
+      Graph.seeded(50, 50, 9), new Graph(1, 6)};
+    //the cells the breadth first, A* and bidirectional searches expand on each of them
+    int[][] expanded = {{7, 4, 6}, {98, 64, 47}, {2317, 1736, 1333}, {5, 5, 5}};
+    for (int i = 0; i < graphs.length; i += 1) {
+      Graph g = graphs[i];
+      Vertex from = g.vertexAt(0);
+      Vertex to = g.vertexAt(g.grid.cells() - 1);
+      g.restartSearch();
+      g.findPathBFS(from, to);
+      ArrayList<Vertex> path = g.searchPath;
+      t.checkExpect(g.visited.size(), expanded[i][0]);
+
+      g.restartSearch();
+      g.findPathAStar(from, to);
+      t.checkExpect(g.searchPath, path);
+      t.checkExpect(g.visited.size(), expanded[i][1]);
+
+      this.clearReachTimes(g);
+      g.restartSearch();
+      g.findPathBidirectional(from, to);
+      t.checkExpect(g.searchPath, path);
+      t.checkExpect(g.visited.size(), expanded[i][2]);
+      //the end is reached once the two searches meet, after every other reached vertex
+      for (Vertex v : g.visited) {
+        t.checkExpect(v.reachTime <= to.reachTime, true);
+      }
+    }
+    this.graph3.onKeyEvent("a");
+    t.checkExpect(this.graph3.time, 0);
+    t.checkExpect(this.graph3.searchPath.get(1), this.graph3.vertexAt(2499));
+    this.graph3.onKeyEvent("m");
+    t.checkExpect(this.graph3.searchPath.get(1), this.graph3.vertexAt(2499));
+  }
+
+  //EFFECT: marks every vertex of g as not yet reached
+  void clearReachTimes(Graph g) {
+    for (int c = 0; c < g.grid.cells(); c += 1) {
+      g.vertexAt(c).reachTime = -1;
+    }
+  }
+
+  //test the engine builds the same tree as the registered edges would give
+  void testSpanningTreeKruskal(Tester t) {
+    this.reset();
+    SpanningTree fromEdges = SpanningTree.kruskal(50, 50, this.graph3.weights());
+    t.checkExpect(fromEdges.edges, this.graph3.tree.edges);
+    SpanningTree small = SpanningTree.kruskal(2, 2, new int[] {3, 1, 2, 1});
+    t.checkExpect(small.edges, new int[] {1, 3, 2});
+    t.checkExpect(SpanningTree.random(1, 1, new SplittableRandom()).size(), 0);
+    t.checkExpect(SpanningTree.random(7, 3, new SplittableRandom()).size(), 20);
+  }
+
+  //test the construction animation reads the tree through its cursor
+  void testTeardown(Tester t) {
+    this.reset();
+    t.checkExpect(this.graph1.constructed(), false);
+    for (int i = 0; i < this.graph1.tree.size(); i += 1) {
+      this.graph1.step();
+    }
+    t.checkExpect(this.graph1.constructed(), true);
+    t.checkExpect(this.graph1.opened.passages, this.graph1.grid.passages);
+    t.checkExpect(SpanningTree.of(this.graph1.opened).size(), 24);
+    t.checkExpect(this.graph1.mst().size(), 24);
+    this.graph1.onKeyEvent("r");
+    t.checkExpect(this.graph1.constructed(), false);
+    t.checkExpect(SpanningTree.of(this.graph1.opened).size(), 0);
+  }
+
+  //test the walls come down in batches and the animation can be skipped
+  void testBatchedTeardown(Tester t) {
+    this.reset();
+    t.checkExpect(this.graph1.wallsPerTick, 1);
+    t.checkExpect(this.graph3.wallsPerTick, 5);
+    for (int i = 0; i < 499; i += 1) {
+      this.graph3.step();
+    }
+    t.checkExpect(this.graph3.constructed(), false);
+    this.graph3.step();
+    t.checkExpect(this.graph3.constructed(), true);
+    t.checkExpect(this.graph3.opened.passages, this.graph3.grid.passages);
+    t.checkExpect(Graph.defaultWallsPerTick(4000 * 4000 - 1) * Graph.BUILD_TICKS 
+        >= 4000 * 4000 - 1, true);
+
+    this.graph2.wallsPerTick = 40;
+    this.graph2.step();
+    t.checkExpect(this.graph2.teardown, 40);
+    this.graph2.onKeyEvent("s");
+    t.checkExpect(this.graph2.constructed(), true);
+    t.checkExpect(this.graph2.opened.passages, this.graph2.grid.passages);
+    this.graph2.onKeyEvent("r");
+    t.checkExpect(this.graph2.teardown, 0);
+    t.checkExpect(this.graph2.wallsPerTick, 40);
+  }
+
   //void test remove MST
   void testRemoveMST(Tester t) {
     this.reset();
     List<Edge> list1 = graph3.kruskal();
     graph3.removeMST();
     for (Edge e : list1) {
-      t.checkExpect(graph3.allEdges.contains(e), false);
+      t.checkExpect(graph3.allEdges().contains(e), false);
     }
   }
 
@@ -873,10 +5209,10 @@ class ExamplesMaze {
     this.graph.fixConnections();
     //testing edge creations
     t.checkExpect(
-        this.graph.board.get(0).get(0).outEdges.get(0).from.equals(this.graph.board.get(0).get(0)),
+        this.graph.board().get(0).get(0).outEdges.get(0).from.equals(this.graph.board().get(0).get(0)),
         true);
     t.checkExpect(
-        this.graph.board.get(0).get(0).outEdges.get(0).to.equals(this.graph.board.get(0).get(1)),
+        this.graph.board().get(0).get(0).outEdges.get(0).to.equals(this.graph.board().get(0).get(1)),
         true);
   }
 
@@ -888,6 +5224,18 @@ class ExamplesMaze {
     t.checkExpect(this.e3.compareTo(this.e4), -4);
   }
 
+  // testing the sprites are made once and shared
+  void testSprites(Tester t) {
+    this.reset();
+    t.checkExpect(this.v1.drawSeenVertex() == this.v2.drawSeenVertex(), true);
+    t.checkExpect(this.v1.drawPathVertex() == this.v3.drawPathVertex(), true);
+    t.checkExpect(this.e1.drawEdge() == this.e3.drawEdge(), true);
+    t.checkExpect(this.e1.drawEdge() == this.e5.drawEdge(), false);
+    t.checkExpect(this.p1.drawPlayer() == new Player(0, 0).drawPlayer(), true);
+    t.checkExpect(Sprites.get(Sprites.SEEN, 20), 
+        new RectangleImage(20, 20, OutlineMode.SOLID, new Color(51, 153, 255)));
+  }
+
   // testing drawSeenVertex
   void testDrawSeenVertex(Tester t) {
     this.reset();
@@ -929,15 +5277,72 @@ class ExamplesMaze {
   void testOnTick(Tester t) {
     this.reset();
     t.checkExpect(this.graph.time, 0);
+    this.graph.step();
+    t.checkExpect(this.graph.time, 1);
+    //a tick advances as many steps as the time since the last tick is worth
     this.graph.onTick();
     t.checkExpect(this.graph.time, 1);
+    this.graph.clock.last -= 3 * this.graph.clock.stepNanos;
+    this.graph.onTick();
+    t.checkExpect(this.graph.time >= 4 && this.graph.time <= 1 + Graph.MAX_CATCH_UP, true);
+    this.graph.restartSearch();
+    this.graph.onTick();
+    t.checkExpect(this.graph.time, 0);
+  }
+
+  //tests a search ends the game even when a tick steps past the end's reach time
+  void testWorldEndsAfterCatchUp(Tester t) {
+    this.reset();
+    Graph g = Graph.seeded(30, 30, 4);
+    g.finishConstruction();
+    g.onKeyEvent("b");
+    int end = g.vertexAt(g.grid.cells() - 1).reachTime;
+    //not a multiple of three, so the ticks below step over it
+    t.checkExpect(end % 3 != 0, true);
+    t.checkExpect(g.worldEnds().worldEnds, false);
+    //three steps a tick, as a 20 Hz tick carries them, until the end is passed
+    while (g.time <= end) {
+      t.checkExpect(g.worldEnds().worldEnds, false);
+      for (int i = 0; i < 3; i += 1) {
+        g.step();
+      }
+    }
+    t.checkExpect(g.worldEnds().worldEnds, true);
+  }
+
+  //test the fixed steps keep to real time whatever the tick rate
+  void testFixedTimestep(Tester t) {
+    FixedTimestep clock = new FixedTimestep(10, 5);
+    t.checkExpect(clock.advance(1000), 0);
+    //ticking faster than the steps: a step every third tick
+    t.checkExpect(clock.advance(1004), 0);
+    t.checkExpect(clock.advance(1008), 0);
+    t.checkExpect(clock.advance(1012), 1);
+    t.checkExpect(clock.lag, 2L);
+    //ticking slower than the steps: the lost time is caught up, remainder kept
+    t.checkExpect(clock.advance(1037), 2);
+    t.checkExpect(clock.lag, 7L);
+    //a long pause is skipped rather than replayed
+    t.checkExpect(clock.advance(2000), 5);
+    t.checkExpect(clock.lag < 10, true);
+    t.checkExpect(clock.advance(2005), 0);
+    clock.restart();
+    t.checkExpect(clock.advance(9000), 0);
+    t.checkExpect(clock.advance(9010), 1);
+    //sixty steps of a second each, ticked at 200 Hz for 3 seconds: 180 steps
+    FixedTimestep sixty = new FixedTimestep(1000000000L / 60, 30);
+    int steps = sixty.advance(0);
+    for (long now = 5000000; now <= 3000000000L; now += 5000000) {
+      steps += sixty.advance(now);
+    }
+    t.checkExpect(steps, 180);
   }
 
   // test resetFields
   void testResetFields(Tester t) {
     this.reset();
     while (this.graph.time != 5) {
-      this.graph.onTick();
+      this.graph.step();
     }
     t.checkExpect(this.graph.time, 5);
     this.graph.resetFields(this.graph);
@@ -948,19 +5353,19 @@ class ExamplesMaze {
   void testOnKeyEvent(Tester t) {
     this.reset();
     while (this.graph.time <= 5) {  
-      this.graph.onTick();
+      this.graph.step();
     }
     this.graph.onKeyEvent("b");
     t.checkExpect(this.graph.time, 0);
     this.reset();
     while (this.graph.time <= 5) {
-      this.graph.onTick();
+      this.graph.step();
     }
     this.graph.onKeyEvent("d");
     t.checkExpect(this.graph.time, 0);
     this.reset();
     while (this.graph.time <= 0) {
-      this.graph.onTick();
+      this.graph.step();
     }
     this.graph.onKeyEvent("r"); 
     t.checkExpect(this.graph.time, 0);
@@ -985,10 +5390,10 @@ class ExamplesMaze {
   // test removeEdges
   void testRemoveEdges(Tester t) {
     this.reset();
-    int temp = this.testGraph.allEdges.get(0).from.outEdges.size();
+    int temp = this.testGraph.allEdges().get(0).from.outEdges.size();
     this.testGraph.removeEdges();
     this.testGraph.removeMST();
-    t.checkExpect(this.testGraph.allEdges.get(0).from.outEdges.size() < temp, true);
+    t.checkExpect(this.testGraph.allEdges().get(0).from.outEdges.size() < temp, true);
   }
 
   // test drawPath
@@ -999,12 +5404,790 @@ class ExamplesMaze {
     t.checkExpect(this.graph.visited.size() <= temp, true);
   }
 
+  // test the optimal path is solved once per maze
+  void testSolution(Tester t) {
+    this.reset();
+    this.graph3.restartSearch();
+    this.graph3.findPathDFS(this.graph3.vertexAt(0), this.graph3.vertexAt(2499));
+    ArrayList<Vertex> path = this.graph3.searchPath;
+    this.graph3.player = new Player(49, 49);
+    this.graph3.visited = new ArrayList<Vertex>();
+    this.graph3.makeScene();
+    ArrayList<Vertex> cached = this.graph3.searchPath;
+    t.checkExpect(cached, path);
+    this.graph3.makeScene();
+    t.checkExpect(this.graph3.searchPath == cached, true);
+    t.checkExpect(this.graph3.visited.size(), 0);
+    this.graph3.resetFields(new Graph(50, 50));
+    t.checkExpect(this.graph3.solution, null);
+    t.checkExpect(this.graph3.solution().size() > 1, true);
+  }
+
+  //gives the maze file of this grid
+  byte[] mazeFile(MazeGrid grid) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    MazeFile.write(new DataOutputStream(bytes), grid, 0);
+    return bytes.toByteArray();
+  }
+
+  //gives a temporary file holding these bytes
+  File tempMaze(byte[] bytes) throws IOException {
+    File file = File.createTempFile("maze", ".maze");
+    FileOutputStream out = new FileOutputStream(file);
+    out.write(bytes);
+    out.close();
+    return file;
+  }
+
+  //gives whether MazeFile.load turns down a file holding these bytes
+  boolean loadRejects(byte[] bytes) throws IOException {
+    File file = this.tempMaze(bytes);
+    try {
+      MazeFile.load(file);
+      return false;
+    }
+    catch (IOException e) {
+      return true;
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  //gives a copy of a maze file with the bits of the cell at x, y flipped
+  byte[] flipped(byte[] bytes, int width, int x, int y, int bits) {
+    byte[] copy = bytes.clone();
+    copy[MazeFile.HEADER + y * MazeFile.rowBytes(width) + (x >>> 2)] ^= bits << ((x & 3) << 1);
+    return copy;
+  }
+
+  //gives whether the pool's threads all exit within ten seconds
+  boolean terminates(ForkJoinPool pool) {
+    try {
+      return pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    catch (InterruptedException e) {
+      return false;
+    }
+  }
+
+  //gives the maze file Eller's algorithm writes for this size and seed
+  byte[] ellerFile(int width, int height, long seed) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new EllerGenerator(width, height, seed).write(new DataOutputStream(bytes));
+    return bytes.toByteArray();
+  }
+
+  //tests the race mode runs every search at once off the render thread
+  void testMazeRace(Tester t) {
+    this.reset();
+    Graph g = this.graph3;
+    g.finishConstruction();
+    g.onKeyEvent("v");
+    MazeRace race = g.race;
+    t.checkExpect(g.lanes.size(), Graph.COMPARED.length);
+    //frames go on while the searches run
+    g.makeScene();
+    long deadline = System.nanoTime() + 10000000000L;
+    while (!race.finished() && System.nanoTime() < deadline) {
+      g.makeScene();
+      Thread.yield();
+    }
+    t.checkExpect(race.finished(), true);
+    g.makeScene();
+    ArrayList<Vertex> solution = g.solution();
+    int c = Graph.CELL_SIZE / 2;
+    for (int i = 0; i < g.lanes.size(); i += 1) {
+      MazeRaster lane = g.lanes.get(i);
+      MazeRacer racer = race.racers.get(i);
+      t.checkExpect(racer.name, Graph.COMPARED[i]);
+      t.checkExpect(lane.revealCursor, racer.solver.visitedCount);
+      t.checkExpect(racer.progress.get(), racer.solver.visitedCount);
+      t.checkExpect(racer.result.get().path.length, solution.size() - 1);
+      t.checkExpect(lane.caption().startsWith(racer.name + ": " + racer.solver.visitedCount 
+          + " in "), true);
+      //the end is on the path; the first cell expanded is in the racer's own color,
+      //unless it is on the path too
+      t.checkExpect(lane.image.getRGB(49 * c + 2, 49 * c + 2), new Color(0, 0, 204).getRGB());
+      Vertex first = g.vertexAt(racer.solver.order[1]);
+      t.checkExpect(lane.image.getRGB(first.x * c + 2, first.y * c + 2), 
+          solution.contains(first) ? new Color(0, 0, 204).getRGB() 
+              : Graph.RACE_COLORS[i].getRGB());
+    }
+    //the last search to stop let the pool go, with no frame or key asking it to
+    t.checkExpect(this.terminates(race.pool), true);
+    g.onKeyEvent("r");
+    t.checkExpect(g.race, null);
+    t.checkExpect(g.lanes.size(), 0);
+
+    //a search that throws is shown as failed, and the race still finishes
+    MazeRace broken = new MazeRace(g.passages, new String[] {"bfs", "nope"}, 0, 
+        g.grid.cells() - 1);
+    broken.start();
+    deadline = System.nanoTime() + 10000000000L;
+    while (!broken.finished() && System.nanoTime() < deadline) {
+      Thread.yield();
+    }
+    t.checkExpect(broken.finished(), true);
+    t.checkExpect(this.terminates(broken.pool), true);
+    t.checkExpect(broken.racers.get(0).failure, null);
+    t.checkExpect(broken.racers.get(1).failure instanceof IllegalArgumentException, true);
+    t.checkExpect(broken.racers.get(1).caption().startsWith("nope: failed, "), true);
+
+    //a cancelled search stops at its next update of progress
+    MazeSolver solver = new MazeSolver(g.passages);
+    solver.progress = new AtomicInteger(0);
+    solver.cancelled = true;
+    solver.solve("bfs", 0, g.grid.cells() - 1);
+    t.checkExpect(solver.visitedCount, MazeSolver.PUBLISH_EVERY);
+    t.checkExpect(solver.progress.get(), MazeSolver.PUBLISH_EVERY);
+    solver.solve("bidirectional", 0, g.grid.cells() - 1);
+    t.checkExpect(solver.visitedCount, MazeSolver.PUBLISH_EVERY);
+  }
+
+  //tests searches are replayed from their reveal order, one or several at a time
+  void testSearchReplay(Tester t) {
+    this.reset();
+    Graph g = this.graph2;
+    g.finishConstruction();
+    Vertex from = g.vertexAt(0);
+    Vertex to = g.vertexAt(99);
+    g.findPathBFS(from, to);
+    SearchReplay bfs = g.replay;
+    t.checkExpect(bfs.size(), g.visited.size());
+    t.checkExpect(bfs.path.length, g.searchPath.size() - 1);
+    t.checkExpect(bfs.finish, to.reachTime);
+    HashSet<Integer> expanded = new HashSet<Integer>();
+    for (int i = 0; i < bfs.size(); i += 1) {
+      expanded.add(bfs.order[i]);
+      t.checkExpect(bfs.revealAt[i], bfs.order[i] == 0 ? 0 : g.vertexAt(bfs.order[i]).reachTime);
+      t.checkExpect(i == 0 || bfs.revealAt[i - 1] <= bfs.revealAt[i], true);
+      t.checkExpect(g.replayed(i), true);
+    }
+    t.checkExpect(g.replayed(bfs.size()), false);
+    for (Vertex v : g.visited) {
+      t.checkExpect(expanded.contains(v.name), true);
+    }
+    //the replay keeps its own copy of the search
+    int[] order = Arrays.copyOf(bfs.order, bfs.size());
+    g.findPathDFS(from, to);
+    t.checkExpect(bfs.order, order);
+
+    //each frame paints only the cells revealed since the last one
+    g.onKeyEvent("b");
+    MazeRaster raster = g.raster();
+    g.makeScene();
+    int steps = Math.max(1, g.replay.finish / 2);
+    for (int i = 0; i < steps; i += 1) {
+      g.step();
+    }
+    g.makeScene();
+    int before = 0;
+    int revealed = 0;
+    for (int i = 0; i < g.replay.size(); i += 1) {
+      if (g.replay.revealAt[i] == 0) {
+        before += 1;
+      }
+      else if (g.replay.revealAt[i] <= steps) {
+        revealed += 1;
+      }
+    }
+    t.checkExpect(raster.repainted, revealed);
+    t.checkExpect(raster.revealCursor, before + revealed);
+
+    //"c" replays every search side by side on the same clock
+    g.onKeyEvent("c");
+    t.checkExpect(g.lanes.size(), Graph.COMPARED.length);
+    t.checkExpect(g.replay, null);
+    int last = 0;
+    for (MazeRaster lane : g.lanes) {
+      t.checkExpect(lane.cell, Graph.CELL_SIZE / 2);
+      t.checkExpect(lane.pinned.path.length, g.solution().size() - 1);
+      last = Math.max(last, lane.pinned.finish);
+    }
+    g.makeScene();
+    while (g.time <= last) {
+      g.step();
+    }
+    g.makeScene();
+    int c = Graph.CELL_SIZE / 2;
+    for (MazeRaster lane : g.lanes) {
+      t.checkExpect(lane.revealCursor, lane.pinned.size());
+      t.checkExpect(lane.image.getRGB(9 * c + 2, 9 * c + 2), new Color(0, 0, 204).getRGB());
+    }
+    g.onKeyEvent("b");
+    t.checkExpect(g.lanes.size(), 0);
+    boolean unknown = false;
+    try {
+      g.solver().solve("sideways", 0, 99);
+    }
+    catch (IllegalArgumentException e) {
+      unknown = true;
+    }
+    t.checkExpect(unknown, true);
+  }
+
+  //tests the metrics the hot paths report, as plain text and through JMX
+  void testMetrics(Tester t) {
+    this.reset();
+    TextMetrics text = new TextMetrics();
+    text.time("step", 2000000);
+    text.time("step", 4000000);
+    text.count("items", 5);
+    t.checkExpect(text.samples("step"), 2L);
+    t.checkExpect(text.total("step"), 6.0);
+    t.checkExpect(text.max("step"), 4.0);
+    t.checkExpect(text.mean("step"), 3.0);
+    t.checkExpect(text.mean("items"), 5.0);
+    t.checkExpect(text.samples("none"), 0L);
+    t.checkExpect(text.dump().startsWith("items "), true);
+    t.checkExpect(text.dump().contains(" ms"), true);
+    text.reset();
+    t.checkExpect(text.dump(), "");
+
+    IMetrics before = Graph.metrics;
+    JmxMetrics jmx = new JmxMetrics();
+    Graph.metrics = jmx;
+    try {
+      Graph g = Graph.seeded(8, 6, 11L);
+      g.finishConstruction();
+      int walls = g.allEdges().size();
+      g.makeScene();
+      g.onKeyEvent("b");
+      g.onKeyEvent("d");
+      g.findPath(g.board().get(0).get(0), g.board().get(5).get(7), new Queue<Vertex>());
+      g.onKeyEvent("r");
+      String[] steps = {"generate.fixConnections", "generate.getAllEdges", 
+        "generate.sortEdges", "generate.kruskal", "generate.removeMST", 
+        "generate.removeEdges", "findPath.bfs", "findPath.dfs", "findPath", "reset", 
+        "frame.makeScene"};
+      for (String step : steps) {
+        t.checkExpect(jmx.samples(step) > 0, true);
+      }
+      t.checkExpect(jmx.samples("generate.kruskal"), 2L);
+      t.checkExpect(jmx.max("findPath.bfs.expanded") <= 48, true);
+      t.checkExpect(jmx.max("findPath.bfs.expanded") > 0, true);
+      //the first frame paints every wall left standing, the player and the raster
+      t.checkExpect(jmx.max("frame.images") >= walls + 2, true);
+
+      jmx.register();
+      ObjectName name = new ObjectName(JmxMetrics.NAME);
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      t.checkExpect(server.getAttribute(name, "generate.kruskal.samples"), 2L);
+      t.checkExpect(server.getAttribute(name, "findPath.bfs.mean"), 
+          jmx.mean("findPath.bfs"));
+      t.checkExpect(server.getMBeanInfo(name).getAttributes().length, 
+          4 * jmx.stats.size());
+      t.checkExpect(((String) server.invoke(name, "dump", null, null))
+          .contains("frame.makeScene"), true);
+      boolean missing = false;
+      try {
+        server.getAttribute(name, "nothing.samples");
+      }
+      catch (AttributeNotFoundException e) {
+        missing = true;
+      }
+      t.checkExpect(missing, true);
+      server.invoke(name, "reset", null, null);
+      t.checkExpect(jmx.stats.size(), 0);
+      jmx.unregister();
+      t.checkExpect(server.isRegistered(name), false);
+    }
+    catch (JMException e) {
+      t.checkExpect(e.getMessage(), "no exception");
+    }
+    finally {
+      Graph.metrics = before;
+    }
+  }
+
+  //tests the parts of the benchmark suite that do not depend on timing
+  void testMazeSuite(Tester t) {
+    this.reset();
+    for (String benchmark : MazeSuite.BENCHMARKS) {
+      Graph g = MazeSuite.setUp(benchmark, 6);
+      MazeSuite.runOnce(benchmark, g);
+      MazeSuite.runOnce(benchmark, g);
+    }
+    t.checkExpect(MazeSuite.setUp("kruskal", 6).constructed(), true);
+    Graph scene = MazeSuite.setUp("makeScene", 6);
+    for (int i = 0; i < 100; i += 1) {
+      MazeSuite.runOnce("makeScene", scene);
+    }
+    t.checkExpect(scene.time <= scene.replay.finish + 1, true);
+    t.checkExpect(MazeSuite.mean(new double[] {1, 2, 6}), 3.0);
+    t.checkExpect(MazeSuite.error(new double[] {2, 2, 2}), 0.0);
+    t.checkExpect(MazeSuite.error(new double[] {1, 3}), 3.0);
+    File file = null;
+    try {
+      file = File.createTempFile("bench", ".json");
+      FileOutputStream out = new FileOutputStream(file);
+      out.write(("[\n" + MazeSuite.entry("kruskal", 10, 4.5, 0.1, new double[] {4.5}) + ",\n"
+          + MazeSuite.entry("makeScene", 100, 20, 1, new double[] {20}) + "\n]\n")
+          .getBytes("UTF-8"));
+      out.close();
+      HashMap<String, Double> baseline = MazeSuite.read(file.getPath());
+      t.checkExpect(baseline.get("MazeSuite.kruskal 10x10"), 4.5);
+      t.checkExpect(baseline.get("MazeSuite.makeScene 100x100"), 20.0);
+      HashMap<String, Double> current = new HashMap<String, Double>(baseline);
+      current.put("MazeSuite.kruskal 10x10", 4.9);
+      ByteArrayOutputStream printed = new ByteArrayOutputStream();
+      String nl = System.lineSeparator();
+      t.checkExpect(MazeSuite.compare(baseline, current, 0.1, new PrintStream(printed)), 
+          true);
+      t.checkExpect(printed.toString("UTF-8"), "MazeSuite.kruskal 10x10: 1.09x" + nl
+          + "MazeSuite.makeScene 100x100: 1.00x" + nl);
+      current.put("MazeSuite.makeScene 100x100", 23.0);
+      printed.reset();
+      t.checkExpect(MazeSuite.compare(baseline, current, 0.1, new PrintStream(printed)), 
+          false);
+      t.checkExpect(printed.toString("UTF-8").contains("100x100: 1.15x  REGRESSION"), true);
+      current.remove("MazeSuite.kruskal 10x10");
+      current.put("MazeSuite.makeScene 100x100", 20.0);
+      current.put("MazeSuite.kruskal 100x100", 40.0);
+      printed.reset();
+      t.checkExpect(MazeSuite.compare(baseline, current, 0.1, new PrintStream(printed)), 
+          false);
+      t.checkExpect(printed.toString("UTF-8"), "MazeSuite.kruskal 100x100: no baseline" + nl
+          + "MazeSuite.kruskal 10x10: MISSING" + nl
+          + "MazeSuite.makeScene 100x100: 1.00x" + nl);
+    }
+    catch (IOException e) {
+      t.checkExpect(e.getMessage(), "no exception");
+    }
+    finally {
+      if (file != null) {
+        file.delete();
+      }
+    }
+  }
+
+  //tests saving mazes and loading them back through a memory mapping
+  void testMazeFile(Tester t) {
+    this.reset();
+    File file = null;
+    try {
+      int[] widths = {1, 3, 4, 5, 31, 32, 33, 37};
+      for (int w : widths) {
+        Maze maze = Maze.generate(w, 9, w, Maze.SHUFFLE);
+        byte[] bytes = this.mazeFile(maze.grid);
+        byte[] expected = new byte[MazeFile.rowBytes(w)];
+        byte[] row = new byte[MazeFile.rowBytes(w)];
+        boolean same = true;
+        for (int y = 0; y < 9; y += 1) {
+          Arrays.fill(expected, (byte) 0);
+          for (int x = 0; x < w; x += 1) {
+            MazeFile.open(expected, x, maze.grid.passagesOf(maze.grid.cellAt(x, y)));
+          }
+          MazeFile.rowOf(maze.grid, y, row);
+          same = same && Arrays.equals(row, expected);
+        }
+        t.checkExpect(same, true);
+        MazeGrid back = new MazeReader(new ByteArrayInputStream(bytes)).readGrid();
+        t.checkExpect(Arrays.equals(back.passages, maze.grid.passages), true);
+      }
+      Maze maze = Maze.generate(45, 30, 77, Maze.KRUSKAL);
+      file = File.createTempFile("maze", ".maze");
+      MazeFile.save(file, maze);
+      t.checkExpect(file.length(), (long) MazeFile.HEADER + 30 * MazeFile.rowBytes(45));
+      MappedMaze mapped = MazeFile.map(file);
+      t.checkExpect(mapped.width, 45);
+      t.checkExpect(mapped.height, 30);
+      t.checkExpect(mapped.seed, 77L);
+      t.checkExpect(mapped.passagesAt(44, 29), 0);
+      t.checkExpect(mapped.passagesAt(13, 8), maze.grid.passagesOf(maze.grid.cellAt(13, 8)));
+      Maze loaded = MazeFile.load(file);
+      t.checkExpect(Arrays.equals(loaded.grid.passages, maze.grid.passages), true);
+      t.checkExpect(loaded.tree.size(), maze.tree.size());
+      t.checkExpect(loaded.solve("bfs").path, maze.solve("bfs").path);
+      Graph g = new Graph(loaded);
+      t.checkExpect(g.seed, 77L);
+      t.checkExpect(Arrays.equals(g.grid.passages, maze.grid.passages), true);
+      t.checkExpect(g.mst().size(), 45 * 30 - 1);
+      t.checkExpect(g.allEdges().size(), MazeGrid.edgeCount(45, 30) - (45 * 30 - 1));
+      while (!g.constructed()) {
+        g.step();
+      }
+      t.checkExpect(Arrays.equals(g.opened.passages, maze.grid.passages), true);
+      RandomAccessFile cut = new RandomAccessFile(file, "rw");
+      cut.setLength(file.length() - 1);
+      cut.close();
+      boolean rejected = false;
+      try {
+        MazeFile.load(file);
+      }
+      catch (IOException e) {
+        rejected = true;
+      }
+      t.checkExpect(rejected, true);
+    }
+    catch (IOException e) {
+      t.checkExpect(e.getMessage(), "no exception");
+    }
+    finally {
+      if (file != null) {
+        file.delete();
+      }
+    }
+  }
+
+  //tests a maze file with a bad size or passages it cannot have is turned down
+  void testCorruptMazeFile(Tester t) {
+    this.reset();
+    try {
+      Maze maze = Maze.generate(7, 5, 3, Maze.KRUSKAL);
+      byte[] bytes = this.mazeFile(maze.grid);
+      t.checkExpect(this.loadRejects(bytes), false);
+      byte[] negative = bytes.clone();
+      ByteBuffer.wrap(negative).putInt(8, -3);
+      t.checkExpect(this.loadRejects(negative), true);
+      boolean rejected = false;
+      try {
+        new MazeReader(new ByteArrayInputStream(negative));
+      }
+      catch (IOException e) {
+        rejected = true;
+      }
+      t.checkExpect(rejected, true);
+      byte[] empty = bytes.clone();
+      ByteBuffer.wrap(empty).putInt(4, 0);
+      t.checkExpect(this.loadRejects(empty), true);
+      t.checkExpect(this.loadRejects(this.flipped(bytes, 7, 6, 2, MazeGrid.RIGHT)), true);
+      t.checkExpect(this.loadRejects(this.flipped(bytes, 7, 3, 4, MazeGrid.DOWN)), true);
+      int closed = -1;
+      int open = -1;
+      for (int c = 0; c < 35; c += 1) {
+        boolean right = (maze.grid.passagesOf(c) & MazeGrid.RIGHT) != 0;
+        if (c % 7 < 6 && !right) {
+          closed = c;
+        }
+        if (right) {
+          open = c;
+        }
+      }
+      t.checkExpect(this.loadRejects(this.flipped(bytes, 7, closed % 7, closed / 7, 
+          MazeGrid.RIGHT)), true);
+      t.checkExpect(this.loadRejects(this.flipped(bytes, 7, open % 7, open / 7, 
+          MazeGrid.RIGHT)), true);
+      //a loop that cuts a cell off keeps the count of passages right: load takes it,
+      //and only isPerfect turns it down
+      byte[] looped = this.flipped(bytes, 7, closed % 7, closed / 7, MazeGrid.RIGHT);
+      byte[] swapped = null;
+      for (int c = 0; c < 35 && swapped == null; c += 1) {
+        byte[] cut = this.flipped(looped, 7, c % 7, c / 7, MazeGrid.DOWN);
+        if ((maze.grid.passagesOf(c) & MazeGrid.DOWN) != 0 
+            && !StreamingSolver.isPerfect(new MazeReader(new ByteArrayInputStream(cut)))) {
+          swapped = cut;
+        }
+      }
+      t.checkExpect(this.loadRejects(swapped), false);
+      File file = this.tempMaze(swapped);
+      t.checkExpect(MazeFile.isPerfect(file), false);
+      file.delete();
+      file = this.tempMaze(bytes);
+      t.checkExpect(MazeFile.isPerfect(file), true);
+      file.delete();
+    }
+    catch (IOException e) {
+      t.checkExpect(e.getMessage(), "no exception");
+    }
+  }
+
+
+  //tests making, checking and solving mazes a row at a time
+  void testStreaming(Tester t) {
+    this.reset();
+    try {
+      int[][] sizes = {{1, 1}, {1, 9}, {9, 1}, {13, 7}, {40, 40}};
+      for (int[] size : sizes) {
+        byte[] file = this.ellerFile(size[0], size[1], 3);
+        t.checkExpect(file.length, 
+            MazeFile.HEADER + size[1] * MazeFile.rowBytes(size[0]));
+        t.checkExpect(Arrays.equals(file, this.ellerFile(size[0], size[1], 3)), true);
+        MazeGrid grid = new MazeReader(new ByteArrayInputStream(file)).readGrid();
+        int passages = 0;
+        for (int cell = 0; cell < grid.cells(); cell += 1) {
+          passages += Integer.bitCount(grid.passagesOf(cell));
+        }
+        t.checkExpect(passages, grid.cells() - 1);
+        MazeSolver solver = new MazeSolver(new PassageIndex(grid));
+        solver.solve(0, grid.cells() - 1, new CellQueue(grid.cells()));
+        t.checkExpect(StreamingSolver.isPerfect(
+            new MazeReader(new ByteArrayInputStream(file))), true);
+        t.checkExpect(StreamingSolver.pathLength(
+            new MazeReader(new ByteArrayInputStream(file))), solver.pathLength + 1L);
+      }
+      for (long seed = 0; seed < 20; seed += 1) {
+        Maze maze = Maze.generate(17, 11, seed, Maze.KRUSKAL);
+        byte[] file = this.mazeFile(maze.grid);
+        t.checkExpect(StreamingSolver.isPerfect(
+            new MazeReader(new ByteArrayInputStream(file))), true);
+        t.checkExpect(StreamingSolver.pathLength(
+            new MazeReader(new ByteArrayInputStream(file))), (long) maze.solve("bfs").length());
+      }
+      MazeGrid loop = Maze.generate(6, 6, 1, Maze.KRUSKAL).grid;
+      for (int cell = 0; cell < 5; cell += 1) {
+        loop.open(cell, MazeGrid.RIGHT);
+        loop.open(cell, MazeGrid.DOWN);
+      }
+      t.checkExpect(StreamingSolver.isPerfect(
+          new MazeReader(new ByteArrayInputStream(this.mazeFile(loop)))), false);
+      MazeGrid split = new MazeGrid(3, 1);
+      split.open(0, MazeGrid.RIGHT);
+      t.checkExpect(StreamingSolver.isPerfect(
+          new MazeReader(new ByteArrayInputStream(this.mazeFile(split)))), false);
+      t.checkExpect(StreamingSolver.pathLength(
+          new MazeReader(new ByteArrayInputStream(this.mazeFile(split)))), -1L);
+      MazeGrid outside = new MazeGrid(2, 1);
+      outside.open(0, MazeGrid.RIGHT);
+      outside.open(1, MazeGrid.RIGHT);
+      t.checkExpect(StreamingSolver.isPerfect(
+          new MazeReader(new ByteArrayInputStream(this.mazeFile(outside)))), false);
+    }
+    catch (IOException e) {
+      t.checkExpect(e.getMessage(), "no exception");
+    }
+    boolean rejected = false;
+    try {
+      new MazeReader(new ByteArrayInputStream(new byte[MazeFile.HEADER]));
+    }
+    catch (IOException e) {
+      rejected = true;
+    }
+    t.checkExpect(rejected, true);
+  }
+
+  //tests that a seed always gives the same maze, whoever makes it
+  void testSeeds(Tester t) {
+    this.reset();
+    Graph g1 = Graph.seeded(20, 15, 42);
+    Graph g2 = Graph.seeded(20, 15, 42L);
+    t.checkExpect(g1.seed, 42L);
+    t.checkExpect(g1.weights(), g2.weights());
+    t.checkExpect(g1.tree.edges, g2.tree.edges);
+    Maze headless = Maze.generate(20, 15, 42L, Maze.KRUSKAL);
+    t.checkExpect(Arrays.equals(g1.grid.passages, headless.grid.passages), true);
+    t.checkExpect(g1.tree.edges, headless.tree.edges);
+    t.checkExpect(g1.board == null && g1.edges == null && g1.allEdges == null, true);
+    g1.onTick();
+    g1.makeScene();
+    g1.worldEnds();
+    t.checkExpect(g1.board == null, true);
+    t.checkExpect(g1.vertexAt(21).equals(g1.board.get(1).get(1)), true);
+    t.checkExpect(g1.weights(), g2.weights());
+    t.checkExpect(g1.mst.size(), g1.tree.size());
+    t.checkExpect(g1.mst.get(0).id, g1.tree.edgeAt(0));
+    t.checkExpect(g1.allEdges.size(), g1.edges.size() - g1.tree.size());
+    t.checkExpect(Arrays.equals(Graph.seeded(20, 15, 43L).grid.passages, 
+        g1.grid.passages), false);
+    g1.onKeyEvent("r");
+    t.checkExpect(g1.seed, 43L);
+    t.checkExpect(g1.tree.edges, Graph.seeded(20, 15, 43L).tree.edges);
+    int[] serial = SpanningTree.randomWeights(700, 300, new SplittableRandom(5));
+    ForkJoinPool pool = new ForkJoinPool(3);
+    int[] parallel = SpanningTree.randomWeights(700, 300, new SplittableRandom(5), pool);
+    pool.shutdown();
+    t.checkExpect(serial.length > 2 * WeightChunks.SIZE, true);
+    t.checkExpect(Arrays.equals(serial, parallel), true);
+    t.checkExpect(Arrays.equals(Maze.generate(700, 300, 5, Maze.BORUVKA).grid.passages,
+        SpanningTree.kruskal(700, 300, serial).grid.passages), true);
+  }
+
+  //tests ordering edge ids by weight without a comparison sort, and shuffling them
+  void testEdgeOrder(Tester t) {
+    this.reset();
+    t.checkExpect(SpanningTree.byWeight(new int[] {3, 1, 2, 1}), new int[] {1, 3, 2, 0});
+    t.checkExpect(SpanningTree.byWeight(new int[] {5, -2, 5, 0}), new int[] {1, 3, 0, 2});
+    t.checkExpect(SpanningTree.byWeight(new int[] {2000000000, 7, -2000000000}), 
+        new int[] {2, 1, 0});
+    t.checkExpect(SpanningTree.byWeight(new int[] {}), new int[] {});
+    int[] weights = SpanningTree.randomWeights(40, 40, new SplittableRandom(17));
+    long[] packed = new long[weights.length];
+    for (int id = 0; id < weights.length; id += 1) {
+      packed[id] = ((long) weights[id] << 32) | id;
+    }
+    Arrays.sort(packed);
+    int[] expected = new int[packed.length];
+    for (int i = 0; i < packed.length; i += 1) {
+      expected[i] = (int) packed[i];
+    }
+    t.checkExpect(SpanningTree.byWeight(weights), expected);
+    int[] ids = SpanningTree.shuffledIds(100, new SplittableRandom(1));
+    int[] sorted = Arrays.copyOf(ids, ids.length);
+    Arrays.sort(sorted);
+    int[] identity = new int[100];
+    for (int i = 0; i < identity.length; i += 1) {
+      identity[i] = i;
+    }
+    t.checkExpect(sorted, identity);
+    t.checkExpect(Arrays.equals(ids, identity), false);
+    t.checkExpect(ids, SpanningTree.shuffledIds(100, new SplittableRandom(1)));
+    Maze maze = Maze.generate(30, 40, 9, Maze.SHUFFLE);
+    t.checkExpect(maze.tree.size(), 1199);
+    t.checkExpect(maze.solve("bfs").path[maze.solve("bfs").length() - 1], 1199);
+  }
+
+  //tests that Boruvka on several threads builds the tree Kruskal builds
+  void testBoruvka(Tester t) {
+    this.reset();
+    ForkJoinPool pool = new ForkJoinPool(3);
+    int[][] sizes = {{1, 1}, {1, 7}, {7, 1}, {30, 20}, {64, 64}};
+    SplittableRandom rand = new SplittableRandom(16);
+    for (int[] size : sizes) {
+      int[] weights = SpanningTree.randomWeights(size[0], size[1], rand);
+      SpanningTree kruskal = SpanningTree.kruskal(size[0], size[1], weights);
+      SpanningTree boruvka = new Boruvka(size[0], size[1], weights, 16).run(pool);
+      t.checkExpect(boruvka.size(), kruskal.size());
+      t.checkExpect(Arrays.equals(boruvka.grid.passages, kruskal.grid.passages), true);
+      int[] byId = Arrays.copyOf(kruskal.edges, kruskal.size());
+      Arrays.sort(byId);
+      t.checkExpect(boruvka.edges, byId);
+    }
+    pool.shutdown();
+    t.checkExpect(Arrays.equals(Maze.generate(40, 30, 5, Maze.BORUVKA).grid.passages, 
+        Maze.generate(40, 30, 5, Maze.KRUSKAL).grid.passages), true);
+    ConcurrentDisjointSet sets = new ConcurrentDisjointSet(5);
+    t.checkExpect(sets.union(3, 4), true);
+    t.checkExpect(sets.union(1, 4), true);
+    t.checkExpect(sets.union(3, 1), false);
+    t.checkExpect(sets.find(4), 1);
+    t.checkExpect(sets.find(0), 0);
+  }
+
+  //tests making mazes on several threads at once
+  void testMazePipeline(Tester t) {
+    this.reset();
+    MazePipeline pipeline = new MazePipeline(50, 12, 9, 100, Maze.KRUSKAL, "dfs", 3, 4);
+    MazePipeline empty = new MazePipeline(0, 2, 2, 1, Maze.KRUSKAL, "bfs", 3);
+    t.checkExpect(empty.results.remainingCapacity(), 3 * MazePipeline.QUEUED_PER_THREAD);
+    empty.close();
+    boolean[] seen = new boolean[50];
+    boolean same = true;
+    try {
+      while (pipeline.hasNext()) {
+        MazeSolution s = pipeline.next();
+        int i = (int) (s.maze.seed - 100);
+        seen[i] = true;
+        //a queued maze no longer holds on to its solver
+        same = same && s.maze.solver == null;
+        Maze serial = Maze.generate(12, 9, s.maze.seed, Maze.KRUSKAL);
+        same = same && Arrays.equals(s.maze.grid.passages, serial.grid.passages)
+            && Arrays.equals(s.path, serial.solve("dfs").path);
+      }
+    }
+    catch (InterruptedException e) {
+      same = false;
+    }
+    finally {
+      pipeline.close();
+    }
+    boolean all = true;
+    for (boolean b : seen) {
+      all = all && b;
+    }
+    t.checkExpect(all, true);
+    t.checkExpect(same, true);
+    t.checkExpect(pipeline.hasNext(), false);
+    //a maze that cannot be made reaches the consumer as the failure, not as a hang
+    MazePipeline broken = new MazePipeline(5, -3, 4, 100, Maze.KRUSKAL, "bfs", 2, 4);
+    boolean failed = false;
+    try {
+      broken.next();
+    }
+    catch (RuntimeException e) {
+      failed = true;
+    }
+    catch (InterruptedException e) {
+      failed = false;
+    }
+    t.checkExpect(failed, true);
+    t.checkExpect(broken.pool.isShutdown(), true);
+  }
+
+  //tests the headless Maze
+  void testMaze(Tester t) {
+    this.reset();
+    Maze m1 = Maze.generate(30, 20, 7, Maze.KRUSKAL);
+    Maze m2 = Maze.generate(30, 20, 7, Maze.KRUSKAL);
+    t.checkExpect(Arrays.equals(m1.grid.passages, m2.grid.passages), true);
+    t.checkExpect(m1.tree.size(), 599);
+    t.checkExpect(m1.end(), 599);
+    MazeSolution bfs = m1.solve("bfs");
+    t.checkExpect(bfs.path[0], 0);
+    t.checkExpect(bfs.path[bfs.length() - 1], 599);
+    PassageIndex passages = new PassageIndex(m1.grid);
+    boolean connected = true;
+    for (int i = 0; i + 1 < bfs.length(); i += 1) {
+      boolean step = false;
+      for (int dir = PassageIndex.UP; dir <= PassageIndex.DOWN; dir *= 2) {
+        step = step || (passages.canMove(bfs.path[i], dir) 
+            && passages.neighbor(bfs.path[i], dir) == bfs.path[i + 1]);
+      }
+      connected = connected && step;
+    }
+    t.checkExpect(connected, true);
+    t.checkExpect(m1.solve("dfs").path, bfs.path);
+    t.checkExpect(m1.solve("astar").path, bfs.path);
+    t.checkExpect(m1.solve("bidirectional").path, bfs.path);
+    t.checkExpect(bfs.expanded > 0, true);
+    t.checkExpect(Maze.generate(1, 1, 3, Maze.KRUSKAL).solve("bfs").path, new int[] {0});
+    boolean rejected = false;
+    try {
+      m1.solve("sideways");
+    }
+    catch (IllegalArgumentException e) {
+      rejected = true;
+    }
+    t.checkExpect(rejected, true);
+  }
+
+  // test the picture of the maze is repainted where it changed
+  void testRaster(Tester t) {
+    this.reset();
+    Graph g = this.graph1;
+    int c = Graph.CELL_SIZE;
+    MazeRaster raster = g.raster();
+    g.makeScene();
+    //every wall stands before the construction animation starts
+    t.checkExpect(raster.image.getRGB(c, c / 2), Color.white.getRGB());
+    t.checkExpect(raster.image.getRGB(c / 2, c), Color.white.getRGB());
+    t.checkExpect(raster.image.getRGB(3 * c + 2, 3 * c + 2), Color.GRAY.getRGB());
+    for (int i = 0; i < g.tree.size(); i += 1) {
+      g.step();
+    }
+    g.makeScene();
+    //only the walls of the tree came down, each repainting its two cells
+    t.checkExpect(raster.repainted, 2 * g.tree.size());
+    for (Edge e : g.edges()) {
+      boolean right = e.from.y == e.to.y;
+      int x = right ? e.from.x * c + c : e.from.x * c + c / 2;
+      int y = right ? e.from.y * c + c / 2 : e.from.y * c + c;
+      t.checkExpect(raster.image.getRGB(x, y) == Color.white.getRGB(), 
+          !g.mst().contains(e));
+    }
+    g.makeScene();
+    t.checkExpect(raster.repainted, 0);
+    //the cells the search reached are repainted as they are reached
+    g.onKeyEvent("b");
+    g.makeScene();
+    t.checkExpect(raster.image.getRGB(4 * c + 2, 4 * c + 2), Color.GRAY.getRGB());
+    while (g.time < g.vertexAt(24).reachTime) {
+      g.step();
+    }
+    g.makeScene();
+    Vertex seen = g.visited.get(g.visited.size() - 1);
+    t.checkExpect(raster.image.getRGB(seen.x * c + 2, seen.y * c + 2), 
+        g.searchPath.contains(seen) ? new Color(0, 0, 204).getRGB() 
+            : new Color(51, 153, 255).getRGB());
+    t.checkExpect(raster.image.getRGB(4 * c + 2, 4 * c + 2), new Color(0, 0, 204).getRGB());
+  }
+
   // test playerSolved
   void testPlayerSolved(Tester t) {
     this.reset();
     this.graph.player = new Player(
-        this.graph.board.get(graph.height - 1).get(graph.width - 1).x,
-        this.graph.board.get(graph.height - 1).get(graph.width - 1).y);
+        this.graph.board().get(graph.height - 1).get(graph.width - 1).x,
+        this.graph.board().get(graph.height - 1).get(graph.width - 1).y);
     t.checkExpect(this.graph.playerSolved(), true);
   }
 
@@ -1015,6 +6198,57 @@ class ExamplesMaze {
     t.checkExpect(this.graph.almostSolved(), true);
   }
 
+  // test the compact grid
+  void testMazeGrid(Tester t) {
+    this.reset();
+    MazeGrid g = new MazeGrid(3, 2);
+    g.connect(1, 0);
+    g.connect(1, 4);
+    t.checkExpect(g.canGoRight(0), true);
+    t.checkExpect(g.canGoLeft(1), true);
+    t.checkExpect(g.canGoDown(1), true);
+    t.checkExpect(g.canGoUp(4), true);
+    t.checkExpect(g.canGoUp(1), false);
+    t.checkExpect(g.canGoLeft(3), false);
+    t.checkExpect(g.canGoRight(2), false);
+    t.checkExpect(g.passagesOf(1), MazeGrid.DOWN);
+    //every edge of the spanning tree is a passage in the grid
+    int open = 0;
+    for (Edge e : this.graph3.mst()) {
+      t.checkExpect(this.graph3.grid.isOpen(Math.min(e.from.name, e.to.name), 
+          e.from.y == e.to.y ? MazeGrid.RIGHT : MazeGrid.DOWN), true);
+    }
+    for (int c = 0; c < this.graph3.grid.cells(); c += 1) {
+      open += Integer.bitCount(this.graph3.grid.passagesOf(c));
+    }
+    t.checkExpect(open, this.graph3.mst().size());
+  }
+
+  //tests every raster is let go of once nothing draws it
+  void testRasterRelease(Tester t) {
+    this.reset();
+    int before = ImageMaker.loadedImages.size();
+    Graph g = this.graph2;
+    g.finishConstruction();
+    g.makeScene();
+    t.checkExpect(ImageMaker.loadedImages.size(), before + 1);
+    g.onKeyEvent("c");
+    g.makeScene();
+    t.checkExpect(ImageMaker.loadedImages.size(), before + 1 + Graph.COMPARED.length);
+    g.onKeyEvent("r");
+    t.checkExpect(ImageMaker.loadedImages.size(), before + 1);
+    Graph other = new Graph(4, 4);
+    other.makeScene();
+    t.checkExpect(ImageMaker.loadedImages.size(), before + 2);
+    g.resetFields(other);
+    t.checkExpect(ImageMaker.loadedImages.size(), before);
+    g.makeScene();
+    t.checkExpect(g.raster.width, 4);
+    t.checkExpect(ImageMaker.loadedImages.size(), before + 1);
+    g.close();
+    t.checkExpect(ImageMaker.loadedImages.size(), before);
+  }
+
   //test for outputting the world images
   void testBigBang(Tester t) {
     Graph graph = new Graph(50, 50);